@@ -1,3 +1,5 @@
+import java.util.Arrays;
+import java.util.BitSet;
 
 /**
 * <h1>AbstractTetris Class</h1>
@@ -10,25 +12,131 @@ public abstract class AbstractTetris {
     /* Private:  */
     private boolean status;
     private int totalMoves;
+    private int totalLines;
+    private int totalLocked;
 
     private boolean isCurTetrominoActive;
     protected Tetromino curTetromino;
 
+    /* Version of the game state and of the locked blocks, used by the renderers to see if something changed. */
+    private long version;
+    private long lockVersion;
+
+    /* Created when it's first needed. */
+    private PlacementSearch search = null;
+
+    /* Rows changed since the renderer took them the last time. */
+    private final BitSet dirtyRows = new BitSet();
+
+    /* Listeners are copied on change, so an event is dispatched over a plain array without a lock or an allocation. */
+    private static final TetrisListener[] NO_LISTENERS = new TetrisListener[0];
+    private volatile TetrisListener[] listeners = NO_LISTENERS;
+
+    /* Rows removed by the last lock. */
+    private final int[] clearedRows;
+
+    /* Row of the highest locked block of every column, rowNum if the column is empty. Updated when a tetromino is locked. */
+    private final int[] columnTops;
+
+    /* Features of the locked blocks, updated with the column tops. */
+    private final BoardFeatures features;
+
+    /*
+     * Zobrist hash of the locked blocks, the keys are shared by the maps of the same sizes and are null on maps wider than a row mask.
+     * Adding or removing a tetromino changes it with one XOR per block; a line clear only moves the rows from the top of the stack
+     * down to the tetromino, so only those rows are hashed before and after it.
+     */
+    private final Zobrist zobrist;
+    private long boardHash = 0;
+
+    /* Row masks read while the features and the hash of a restored map are counted, allocated on the first restore of a hashed map. */
+    private long[] occupancy = null;
+
     /* Protected:  */
     protected int rowNum;
     protected int colNum;
 
     protected abstract void print();
-    
-	public abstract char[][] getMap();
 
-	
-	protected abstract void checkLines();
+	/**
+	 * Copies the locked blocks of the map, without the current tetromino, to the given array.
+	 * @param Char[][] - destination with the same sizes as the map.
+	 */
+	protected abstract void copyBoard(char[][] destination);
+
+	/**
+	 * Copies the locked blocks of the given rows as bitmasks to the same indexes of the given array, bit j of a row is set if column j is filled.
+	 * Only maps up to 64 columns can be copied.
+	 * @param Long[] - destination with the row number of the map.
+	 * @param Int - fromRow, first row to be copied.
+	 * @param Int - toRow, the row after the last row to be copied.
+	 */
+	protected abstract void copyOccupancy(long[] destination, int fromRow, int toRow);
+
+	/**
+	 * Finds the highest locked block of every column.
+	 * @param Int[] - destination, row of the highest block of every column is written to it, rowNum if the column is empty.
+	 */
+	protected abstract void copyColumnTops(int[] destination);
+
+	/**
+	 * Packs the locked blocks of the map to the given snapshot.
+	 * @param GameSnapshot - destination with the same sizes as the map.
+	 */
+	protected abstract void saveBoard(GameSnapshot destination);
+
+	/**
+	 * Replaces the locked blocks of the map with the blocks of the given snapshot.
+	 * @param GameSnapshot - source with the same sizes as the map.
+	 */
+	protected abstract void loadBoard(GameSnapshot source);
+
+	/**
+	 * Replaces the locked blocks of the given row with the given cells.
+	 * @param Int - row
+	 * @param Char[] - cells with the column number of the map, ' ' is an empty cell; null for an empty row.
+	 */
+	protected abstract void loadRow(int row, char[] cells);
+
+	/**
+	 * Removes every locked block from the map.
+	 */
+	protected abstract void clearBoard();
+
+	/**
+	 * Checks the lines to remove if there are full lines, and removes them.
+	 * @param Int[] - removedRows, indexes of the removed rows before the removal are written to it from the bottom to the top.
+	 * @return Int - Number of removed lines.
+	 */
+	protected abstract int checkLines(int[] removedRows);
+
+	/**
+	 * 
+	 * @param Int - row
+	 * @param Int - col
+	 * @return Boolean - True if there is a locked block at the given cell, false otherwise.
+	 */
+	protected abstract boolean isFilled(int row, int col);
+
+	/**
+	 * 
+	 * @param Int - row
+	 * @return Boolean - True if every cell of the given row is filled, false otherwise.
+	 */
+	protected abstract boolean isRowFull(int row);
 
     protected abstract void addTetromino(Tetromino t);
     protected abstract void deleteTetromino(Tetromino t);
-    protected abstract boolean canBeAdded(Tetromino t);
-    protected abstract boolean checkHorizantalMovement(Tetromino comingT, int newYPos);
+
+    /**
+     * Checks if the given tetromino would fit the map after it is moved and rotated by the given amounts, without changing it.
+     * @param Tetromino - t to be checked.
+     * @param Int - dx, row offset.
+     * @param Int - dy, column offset.
+     * @param Int - rotationDelta, number of right rotations.
+     * @return Boolean - True if it fits, false otherwise.
+     */
+    protected abstract boolean fits(Tetromino t, int dx, int dy, int rotationDelta);
 
     /* Public:  */
 
@@ -47,6 +155,19 @@ public abstract class AbstractTetris {
         this.status = true;
         this.isCurTetrominoActive = false;
         this.totalMoves = 0;
+        this.totalLines = 0;
+        this.totalLocked = 0;
+        this.version = 0;
+        this.lockVersion = 0;
+
+        clearedRows = new int[rowNumber];
+        columnTops = new int[colNumber];
+        for (int j = 0; j < colNumber; ++j) {
+            columnTops[j] = rowNumber;
+        }
+        features = new BoardFeatures(rowNumber, colNumber, columnTops);
+
+        zobrist = (colNumber <= Long.SIZE) ? Zobrist.of(rowNumber, colNumber) : null;
     }
 
 	/**
@@ -63,26 +184,57 @@ public abstract class AbstractTetris {
 		if (!canBeAdded(curTetromino)) {
 			status = false;
 			isCurTetrominoActive = false;
+			++version;
+
+			for (TetrisListener listener : listeners) listener.gameOver(this);
+		}
+		else {
+			isCurTetrominoActive = true;
+			markTetrominoDirty();
+			++version;
+
+			for (TetrisListener listener : listeners) listener.tetrominoAdded(this, curTetromino.getType(), curTetromino.getStartX(), curTetromino.getStartY());
 		}
-		else isCurTetrominoActive = true;
     }
 
+	/**
+	 * Starts a new game on the same map, so an engine can be reused without allocating a new one.
+	 */
+	public void reset() {
+		clearBoard();
+		for (int j = 0; j < colNum; ++j) {
+			columnTops[j] = rowNum;
+		}
+		features.clear();
+		boardHash = 0;
+
+		status = true;
+		isCurTetrominoActive = false;
+		totalMoves = 0;
+		totalLines = 0;
+		totalLocked = 0;
+
+		dirtyRows.set(0, rowNum);
+		++version;
+		++lockVersion;
+	}
+
 	/**
 	 * Lower the current tetromino if it is available; or add it to the board if it hits the bottom.
 	 */
 	public void lowerTetromino() {
 		if (status && isCurTetrominoActive) {
-			Tetromino copy = (Tetromino) curTetromino.clone();
-			copy.lower();
-			if (canBeAdded(copy)) {
+			if (fits(curTetromino, 1, 0, 0)) {
+				markTetrominoDirty();
 				curTetromino.lower();
+				markTetrominoDirty();
 				++totalMoves;
+				fireMoved();
 			}
 			else {
-				addTetromino(curTetromino);
-				isCurTetrominoActive = false;
-				checkLines();
+				lockTetromino();
 			}
+			++version;
 			
 		}
 	}
@@ -92,11 +244,13 @@ public abstract class AbstractTetris {
      */
 	public void moveTetrominoLeft() {
 		if (status && isCurTetrominoActive) {
-			Tetromino copy = (Tetromino) curTetromino.clone();
-			copy.goLeft();
-			if (canBeAdded(copy)) {
+			if (fits(curTetromino, 0, -1, 0)) {
+				markTetrominoDirty();
 				curTetromino.goLeft();
+				markTetrominoDirty();
 				++totalMoves;
+				++version;
+				fireMoved();
 			}
 		}
 	}
@@ -107,11 +261,13 @@ public abstract class AbstractTetris {
 	public void moveTetrominoRight() {
 		
 		if (status && isCurTetrominoActive) {
-			Tetromino copy = (Tetromino) curTetromino.clone();
-			copy.goRight();
-			if (canBeAdded(copy)) {
+			if (fits(curTetromino, 0, 1, 0)) {
+				markTetrominoDirty();
 				curTetromino.goRight();
+				markTetrominoDirty();
 				++totalMoves;
+				++version;
+				fireMoved();
 			}
 		}
 	}
@@ -121,14 +277,89 @@ public abstract class AbstractTetris {
 	 */
 	public void rotateTetromino() {
 		if (status && isCurTetrominoActive) {
-			Tetromino copy = (Tetromino) curTetromino.clone();
-			copy.rotate(DirectionType.Right);
-			if (canBeAdded(copy)) {
+			if (fits(curTetromino, 0, 0, 1)) {
+				markTetrominoDirty();
 				curTetromino.rotate(DirectionType.Right);
+				markTetrominoDirty();
+				++version;
+				fireMoved();
 			}
 		}
 	}
 	
+	/**
+	 * Drops the current tetromino straight down to its landing row and locks it there.
+	 */
+	public void hardDrop() {
+		if (status && isCurTetrominoActive) {
+			int distance = ghostRow() - curTetromino.getStartX();
+			if (distance > 0) {
+				markTetrominoDirty();
+				curTetromino.setStartPosition(curTetromino.getStartX() + distance, curTetromino.getStartY());
+				markTetrominoDirty();
+				totalMoves += distance;
+				fireMoved();
+			}
+			lockTetromino();
+			++version;
+		}
+	}
+
+	/**
+	 * Finds the row where the current tetromino would land if it was dropped straight down. <br>
+	 * When the tetromino is above every locked block of its columns, the row is found from the column tops in O(width of the tetromino);
+	 * otherwise, like under an overhang, it's found by lowering it step by step.
+	 * @return Int - Landing start X position of the current tetromino, -1 if there is no active tetromino.
+	 */
+	public int ghostRow() {
+		if (!isCurTetrominoActive) return -1;
+
+		TetrominoShape shape = curTetromino.getShape();
+		int startX = curTetromino.getStartX();
+		int startY = curTetromino.getStartY();
+
+		int landingRow = rowNum - shape.getActiveRowNum();
+		boolean aboveSurface = true;
+		for (int c = 0; c < shape.getActiveColNum() && aboveSurface; ++c) {
+			int top = columnTops[startY + c];
+			int bottom = shape.getColumnBottom(c);
+			if (startX + bottom >= top) aboveSurface = false;
+			else landingRow = Math.min(landingRow, top - 1 - bottom);
+		}
+		if (aboveSurface) return landingRow;
+
+		int distance = 0;
+		while (fits(curTetromino, distance + 1, 0, 0)) ++distance;
+		return startX + distance;
+	}
+
+	/**
+	 * 
+	 * @param Int - col
+	 * @return Int - Height of the locked blocks at the given column, 0 if the column is empty.
+	 */
+	public int columnHeight(int col) { return rowNum - columnTops[col]; }
+
+	/**
+	 * Checks if the given tetromino can be added to the map at its current position.
+	 * @param Tetromino - t to be checked.
+	 * @return Boolean - True if it can be added, false otherwise.
+	 */
+	protected boolean canBeAdded(Tetromino t) {
+		return fits(t, 0, 0, 0);
+	}
+
+	/**
+	 * Checks if the given tetromino can be moved horizontally to the given column, rotating it when it's blocked on the way.
+	 * @param Tetromino - comingT to be moved.
+	 * @param Int - newYPos to be reached.
+	 * @return Boolean - True if the tetromino can be placed at the new column with its shape, false otherwise.
+	 */
+    protected boolean checkHorizantalMovement(Tetromino comingT, int newYPos) {
+        if (search == null) search = new PlacementSearch(rowNum, colNum);
+		return search.canMoveHorizontally(this, comingT, newYPos);
+    }
+
 	/**
      * Draws the board with the current tetromino if there is an active current tetromino, or draws the board without a new tetromino otherwise.
      */
@@ -144,6 +375,440 @@ public abstract class AbstractTetris {
 		}
     }
 
+	/**
+	 * Fills the back frame of the given buffer with the current state and publishes it, if the state changed since the last published frame.
+	 * The locked blocks are only copied when they changed since the back frame was filled, and the map isn't changed while it's copied.
+	 * @param FrameBuffer - buffer to publish the frame.
+	 * @return Boolean - True if a new frame is published, false otherwise.
+	 */
+	public boolean publishFrame(FrameBuffer buffer) {
+		if (buffer.publishedVersion() == version) return false;
+
+		BoardFrame frame = buffer.backFrame();
+		if (frame.getLockVersion() != lockVersion) {
+			copyBoard(frame.lockedCells());
+			frame.setLockVersion(lockVersion);
+		}
+		frame.setState(version, status, isCurTetrominoActive ? curTetromino : null, ghostRow());
+
+		buffer.publish();
+		return true;
+	}
+
+	/**
+	 * Moves the rows changed since the last call to the given set.
+	 * @param BitSet - destination, changed rows are added to it.
+	 */
+	public void takeDirtyRows(BitSet destination) {
+		destination.or(dirtyRows);
+		dirtyRows.clear();
+	}
+
+	/* Adds the current tetromino to the map for good and removes the full lines. */
+	private void lockTetromino() {
+		addFeatures(curTetromino);
+		addTetromino(curTetromino);
+		isCurTetrominoActive = false;
+		++totalLocked;
+
+		/* The tetromino raises the tops of its columns. */
+		TetrominoShape shape = curTetromino.getShape();
+		for (int c = 0; c < shape.getActiveColNum(); ++c) {
+			int col = curTetromino.getStartY() + c;
+			columnTops[col] = Math.min(columnTops[col], curTetromino.getStartX() + shape.getColumnTop(c));
+		}
+
+		/* Every row above the removed lines moves down. */
+		for (TetrisListener listener : listeners) {
+			listener.tetrominoLocked(this, curTetromino.getType(), curTetromino.getStartX(), curTetromino.getStartY(), curTetromino.getRotation());
+		}
+
+		/* Rows above the top of the stack are empty and hash to 0, and the rows below the tetromino don't move. */
+		int endRow = curTetromino.getStartX() + curTetromino.getActiveRowNum();
+		int stackTop = rowNum;
+		boolean hasFullRows = removeFullRowFeatures(curTetromino);
+		if (hasFullRows) {
+			for (int j = 0; j < colNum; ++j) {
+				stackTop = Math.min(stackTop, columnTops[j]);
+			}
+			boardHash ^= hashRows(stackTop, endRow);
+		}
+
+		int removedNum = checkLines(clearedRows);
+		if (removedNum > 0) {
+			totalLines += removedNum;
+
+			features.removeRows(removedNum);
+			dirtyRows.set(0, endRow);
+
+			boardHash ^= hashRows(stackTop, endRow);
+
+			shiftColumnTops(removedNum);
+		}
+		++lockVersion;
+
+		if (removedNum > 0) {
+			for (TetrisListener listener : listeners) listener.linesCleared(this, clearedRows, removedNum);
+		}
+	}
+
+	/*
+	 * Moves the column tops down after the given number of lines are removed. A full line has a block in every column, so every top is at
+	 * or above the highest removed line: a top above it moves down with the lines, a top in it is searched again down from the old top.
+	 */
+	private void shiftColumnTops(int removedNum) {
+		int highestRemoved = clearedRows[removedNum - 1];
+		for (int j = 0; j < colNum; ++j) {
+			int top = columnTops[j];
+			if (top < highestRemoved) {
+				columnTops[j] = top + removedNum;
+			}
+			else {
+				/* The rows above the old top were empty, and they are moved down under the new empty rows. */
+				int row = top + removedNum;
+				while (row < rowNum && !isFilled(row, j)) ++row;
+				columnTops[j] = row;
+			}
+		}
+	}
+
+	/*
+	 * Counts the transitions and the filled cells the blocks of the given tetromino add, before they are added to the map.
+	 * The blocks are counted one by one in their row major order, so a block sees the blocks of the tetromino before it as filled.
+	 */
+	private void addFeatures(Tetromino t) {
+		TetrominoShape shape = t.getShape();
+		for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			int row = t.getStartX() + shape.getCellRow(k);
+			int col = t.getStartY() + shape.getCellCol(k);
+
+			int rowDelta = flip(col == 0 || isFilledBefore(t, row, col - 1, row, col))
+					+ flip(col == colNum - 1 || isFilledBefore(t, row, col + 1, row, col));
+			int colDelta = flip(row > 0 && isFilledBefore(t, row - 1, col, row, col))
+					+ flip(row == rowNum - 1 || isFilledBefore(t, row + 1, col, row, col));
+			features.addBlock(col, rowDelta, colDelta);
+		}
+	}
+
+	/* A filled neighbour's transition is removed by filling a cell, an empty one's is added. */
+	private static int flip(boolean neighbourFilled) {
+		return neighbourFilled ? -1 : 1;
+	}
+
+	/* Checks if the cell is locked or is a block of the tetromino which comes before the block at (row, col). */
+	private boolean isFilledBefore(Tetromino t, int neighbourRow, int neighbourCol, int row, int col) {
+		if (isFilled(neighbourRow, neighbourCol)) return true;
+		boolean before = neighbourRow < row || (neighbourRow == row && neighbourCol < col);
+		return before && t.getShape().isBlock(neighbourRow - t.getStartX(), neighbourCol - t.getStartY());
+	}
+
+	/*
+	 * Counts the column transitions removed with the full rows, before they are removed. Only the rows of the locked tetromino can be full.
+	 * In every column a block of adjacent full rows is cut out, so the cells above and below it become neighbours.
+	 * Returns true if there are full rows.
+	 */
+	private boolean removeFullRowFeatures(Tetromino t) {
+		boolean hasFullRows = false;
+		int endRow = t.getStartX() + t.getActiveRowNum();
+		for (int row = t.getStartX(); row < endRow; ++row) {
+			if (!isRowFull(row)) continue;
+			hasFullRows = true;
+
+			int blockTop = row;
+			while (row + 1 < endRow && isRowFull(row + 1)) ++row;
+
+			for (int j = 0; j < colNum; ++j) {
+				boolean above = blockTop > 0 && isFilled(blockTop - 1, j);
+				boolean below = row == rowNum - 1 || isFilled(row + 1, j);
+				int before = (above ? 0 : 1) + (below ? 0 : 1);
+				int after = (above != below) ? 1 : 0;
+				features.addColumnTransitions(after - before);
+			}
+		}
+		return hasFullRows;
+	}
+
+	/*
+	 * Counts every feature and the hash of the map again from the given top of the stack, after the whole map is changed.
+	 * The empty rows above it have a row transition at each wall, no column transitions and hash to 0, so they aren't read.
+	 * Maps up to a row mask wide are counted from one mask per row, the wider ones aren't hashed and are counted cell by cell.
+	 */
+	private void countFeatures(int stackTop) {
+		if (zobrist == null) {
+			countCellFeatures(stackTop);
+			return;
+		}
+		if (occupancy == null) occupancy = new long[rowNum];
+		copyOccupancy(occupancy, stackTop, rowNum);
+
+		features.clear();
+		long fullRowMask = (colNum == Long.SIZE) ? -1L : (1L << colNum) - 1;
+		long rightWall = 1L << (colNum - 1);
+		int rowTransitions = 2 * stackTop;
+		int columnTransitions = 0;
+		long hash = 0;
+		long above = 0;
+		for (int i = stackTop; i < rowNum; ++i) {
+			long mask = occupancy[i];
+			for (long cells = mask; cells != 0; cells &= cells - 1) {
+				features.addBlock(Long.numberOfTrailingZeros(cells), 0, 0);
+			}
+
+			/* Bit j of the XOR is set when column j and j+1 differ; the walls are filled. */
+			rowTransitions += Long.bitCount((mask ^ (mask >>> 1)) & (fullRowMask >>> 1));
+			if ((mask & 1) == 0) ++rowTransitions;
+			if ((mask & rightWall) == 0) ++rowTransitions;
+			columnTransitions += Long.bitCount(mask ^ above);
+
+			if (mask != 0) hash ^= zobrist.rowHash(i, mask);
+			above = mask;
+		}
+		columnTransitions += Long.bitCount(~above & fullRowMask);
+
+		features.setTransitions(rowTransitions, columnTransitions);
+		boardHash = hash;
+	}
+
+	/* Counts every feature of a map wider than a row mask from its cells. */
+	private void countCellFeatures(int stackTop) {
+		features.clear();
+		int rowTransitions = 2 * stackTop;
+		int columnTransitions = 0;
+		for (int i = stackTop; i < rowNum; ++i) {
+			boolean left = true;
+			for (int j = 0; j < colNum; ++j) {
+				boolean filled = isFilled(i, j);
+				if (filled) features.addBlock(j, 0, 0);
+				if (filled != left) ++rowTransitions;
+				if (filled != (i > stackTop && isFilled(i - 1, j))) ++columnTransitions;
+				left = filled;
+			}
+			if (!left) ++rowTransitions;
+		}
+		for (int j = 0; j < colNum; ++j) {
+			if (!isFilled(rowNum - 1, j)) ++columnTransitions;
+		}
+		features.setTransitions(rowTransitions, columnTransitions);
+	}
+
+	/**
+	 * Changes the hash of the locked blocks by the blocks of the given tetromino, called by the engines when they add or delete it.
+	 * @param Tetromino - t which is added to or deleted from the map.
+	 */
+	protected final void hashTetromino(Tetromino t) {
+		if (zobrist == null) return;
+
+		TetrominoShape shape = t.getShape();
+		for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			int row = t.getStartX() + shape.getCellRow(k);
+			boardHash ^= zobrist.key(row, t.getStartY() + shape.getCellCol(k));
+		}
+	}
+
+	/* Hash of the locked blocks of the given rows, 0 on maps which aren't hashed. */
+	private long hashRows(int fromRow, int toRow) {
+		if (zobrist == null) return 0;
+
+		long hash = 0;
+		for (int i = fromRow; i < toRow; ++i) {
+			long mask = 0;
+			for (int j = 0; j < colNum; ++j) {
+				if (isFilled(i, j)) mask |= 1L << j;
+			}
+			if (mask != 0) hash ^= zobrist.rowHash(i, mask);
+		}
+		return hash;
+	}
+
+	private void fireMoved() {
+		for (TetrisListener listener : listeners) {
+			listener.tetrominoMoved(this, curTetromino.getStartX(), curTetromino.getStartY(), curTetromino.getRotation());
+		}
+	}
+
+	/**
+	 * Adds a listener which is told about the events of the game, on the thread which changes the game.
+	 * @param TetrisListener - listener
+	 */
+	public synchronized void addListener(TetrisListener listener) {
+		TetrisListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+		newListeners[listeners.length] = listener;
+		listeners = newListeners;
+	}
+
+	/**
+	 * Removes a listener added by addListener().
+	 * @param TetrisListener - listener
+	 */
+	public synchronized void removeListener(TetrisListener listener) {
+		for (int i = 0; i < listeners.length; ++i) {
+			if (listeners[i] == listener) {
+				TetrisListener[] newListeners = new TetrisListener[listeners.length - 1];
+				System.arraycopy(listeners, 0, newListeners, 0, i);
+				System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+				listeners = (newListeners.length == 0) ? NO_LISTENERS : newListeners;
+				return;
+			}
+		}
+	}
+
+	/* Marks the rows covered by the current tetromino and by its ghost as changed. */
+	private void markTetrominoDirty() {
+		int activeRowNum = curTetromino.getActiveRowNum();
+		dirtyRows.set(curTetromino.getStartX(), curTetromino.getStartX() + activeRowNum);
+
+		int ghost = ghostRow();
+		dirtyRows.set(ghost, ghost + activeRowNum);
+	}
+
+	/**
+	 * Saves the complete state of the game to the given snapshot.
+	 * @param GameSnapshot - destination with the same sizes as the map.
+	 * @throws IllegalArgumentException - When the snapshot has different sizes.
+	 */
+	public void snapshot(GameSnapshot destination) throws IllegalArgumentException {
+		checkSizes(destination);
+
+		saveBoard(destination);
+		destination.status = status;
+		destination.isTetrominoActive = isCurTetrominoActive;
+		destination.type = (curTetromino != null) ? curTetromino.getType() : null;
+		if (curTetromino != null) {
+			destination.rotation = curTetromino.getRotation();
+			destination.startX = curTetromino.getStartX();
+			destination.startY = curTetromino.getStartY();
+		}
+		destination.totalMoves = totalMoves;
+		destination.totalLines = totalLines;
+		destination.totalLocked = totalLocked;
+	}
+
+	/**
+	 * Restores the complete state of the game from the given snapshot. The whole map is redrawn after it.
+	 * @param GameSnapshot - source with the same sizes as the map.
+	 * @throws IllegalArgumentException - When the snapshot has different sizes.
+	 */
+	public void restore(GameSnapshot source) throws IllegalArgumentException {
+		checkSizes(source);
+
+		loadBoard(source);
+		restoreState(source);
+	}
+
+	/**
+	 * Restores the state of the game but the locked blocks from the given snapshot, for the engines which replace their map by themselves.
+	 * The features and the hash are found again from the rows of the stack. The whole map is redrawn after it.
+	 * @param GameSnapshot - source with the same sizes as the map, its blocks aren't read.
+	 */
+	protected final void restoreState(GameSnapshot source) {
+		copyColumnTops(columnTops);
+		countFeatures(stackTop());
+
+		status = source.status;
+		isCurTetrominoActive = source.isTetrominoActive;
+		if (source.type != null) {
+			if (curTetromino == null) curTetromino = new Tetromino(source.type);
+			else curTetromino.changeType(source.type);
+			curTetromino.setRotation(source.rotation);
+			curTetromino.setStartPosition(source.startX, source.startY);
+		}
+		totalMoves = source.totalMoves;
+		totalLines = source.totalLines;
+		totalLocked = source.totalLocked;
+
+		dirtyRows.set(0, rowNum);
+		++version;
+		++lockVersion;
+	}
+
+	/* Row of the highest locked block, rowNum if the map is empty. */
+	int stackTop() {
+		int top = rowNum;
+		for (int j = 0; j < colNum; ++j) {
+			top = Math.min(top, columnTops[j]);
+		}
+		return top;
+	}
+
+	/*
+	 * Copies the column tops and the filled cells of the columns to the given arrays and returns the hash of the locked blocks,
+	 * so a BoardHistory can keep them with a version of the map.
+	 */
+	long saveLockState(int[] tops, int[] filledCells) {
+		System.arraycopy(columnTops, 0, tops, 0, colNum);
+		features.copyFilledCells(filledCells);
+		return boardHash;
+	}
+
+	/*
+	 * Rewinds the game to a version of a BoardHistory, whose rows from the given one down are already loaded with loadRow and whose rows above
+	 * it are empty. The column tops, the features and the hash kept with the version are loaded instead of being found again from the map.
+	 * There is no active tetromino after it.
+	 */
+	void restoreLockState(int fromRow, int[] tops, int[] filledCells, int rowTransitions, int columnTransitions, long hash,
+			int moves, int lines, int locked) {
+		if (isCurTetrominoActive) markTetrominoDirty();
+		System.arraycopy(tops, 0, columnTops, 0, colNum);
+		features.set(filledCells, rowTransitions, columnTransitions);
+		boardHash = hash;
+
+		status = true;
+		isCurTetrominoActive = false;
+		totalMoves = moves;
+		totalLines = lines;
+		totalLocked = locked;
+
+		dirtyRows.set(fromRow, rowNum);
+		++version;
+		++lockVersion;
+	}
+
+	private void checkSizes(GameSnapshot snapshot) throws IllegalArgumentException {
+		if (snapshot.getRowNum() != rowNum || snapshot.getColNum() != colNum) {
+			throw new IllegalArgumentException("Snapshot sizes: " + snapshot.getRowNum() + "x" + snapshot.getColNum() + " don't match the map: " + rowNum + "x" + colNum + ".");
+		}
+	}
+
+	/**
+	 * Creates a copy of the map with the current tetromino drawn on it.
+	 * @return Char[][] - Copy of the map.
+	 */
+	public char[][] getMap() {
+		char[][] renderedMap = new char[rowNum][colNum];
+		copyBoard(renderedMap);
+
+		if (isCurTetrominoActive) {
+			TetrominoShape shape = curTetromino.getShape();
+			for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+				renderedMap[shape.getCellRow(k)+curTetromino.getStartX()][shape.getCellCol(k)+curTetromino.getStartY()] = shape.getSymbol();
+			}
+		}
+
+		return renderedMap;
+	}
+
+	/**
+	 * The features are only changed by the thread which changes the game, and only read between the changes.
+	 * @return BoardFeatures - Features of the locked blocks, updated in place.
+	 */
+	public BoardFeatures features() { return features; }
+
+	/**
+	 * Two maps with the same sizes and the same locked blocks have the same hash, the current tetromino isn't a part of it.
+	 * @return Long - Zobrist hash of the locked blocks.
+	 * @throws UnsupportedOperationException - When the map is wider than a row mask.
+	 */
+	public long boardHash() throws UnsupportedOperationException {
+		if (zobrist == null) throw new UnsupportedOperationException("Maps with more than " + Long.SIZE + " columns aren't hashed.");
+		return boardHash;
+	}
+
+	/**
+	 * 
+	 * @return Long - Version of the game state, it changes on every change of the game.
+	 */
+	public long stateVersion() { return version; }
+
 	/**
      * 
      * @return Boolean - True if the game continues, false otherwise.
@@ -162,6 +827,18 @@ public abstract class AbstractTetris {
 	 */
 	public int numberOfMoves() { return totalMoves; }
 	
+	/**
+	 * 
+	 * @return Int - Number of removed lines till now.
+	 */
+	public int numberOfClearedLines() { return totalLines; }
+
+	/**
+	 * 
+	 * @return Int - Number of tetrominos locked to the map till now.
+	 */
+	public int numberOfLockedTetrominos() { return totalLocked; }
+
 	/**
 	 * 
 	 * @return Tetromino - Last moved tetromino.
@@ -0,0 +1,380 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+* <h1>AutoPlayer Class</h1>
+* Plays a game without a user: finds every final placement of the current tetromino, and optionally of the next one on every
+* resulting map, scores the resulting maps with a weighted heuristic and moves the tetromino to the best placement. <br>
+* The maps are row bitmasks, so placing a tetromino and scoring a map are a few masked operations per row. The candidates are
+* evaluated by recursive tasks on a ForkJoinPool, every worker thread with its own buffers; a candidate's score only depends on
+* its index, so the chosen placement doesn't depend on the number of threads. The tetromino is moved with the same moves a user has. <br>
+* With look ahead, the maps are recognized by their Zobrist hashes, which are changed incrementally while placing, and the results
+* of the next tetromino's search can be kept in an EvaluationCache of every thread, so a map reached again isn't searched again.
+*
+* @author Emre Oytun
+*/
+public class AutoPlayer implements GameStrategy {
+
+    /* Default weights of the heuristic, found by tuning on 20x10 games. */
+    public static final double HEIGHT_WEIGHT = -0.510066;
+    public static final double LINES_WEIGHT = 0.760666;
+    public static final double HOLES_WEIGHT = -0.35663;
+    public static final double BUMPINESS_WEIGHT = -0.184483;
+
+    /* Score of a placement after which the next tetromino can't be added. */
+    private static final double LOST_SCORE = -1e9;
+
+    /*
+     * Suggested entries of the cache of every evaluating thread. The cache is off by default: in normal play few maps are reached again,
+     * so it's only worth it for searches which evaluate the same positions many times.
+     */
+    public static final int CACHE_SIZE = 1 << 12;
+
+    /* Keys mixed into the hash of a map for its look ahead result with every next tetromino type. */
+    private static final long[] NEXT_KEYS = createNextKeys();
+
+    /* Candidates evaluated by one task without splitting it. */
+    private static final int LEAF_CANDIDATES = 16;
+    private static final int LEAF_CANDIDATES_LOOKAHEAD = 2;
+
+    private final int rowNum;
+    private final int colNum;
+    private final long fullRowMask;
+    private final boolean lookAhead;
+    private final ForkJoinPool pool;
+    private final int cacheSize;
+
+    private double heightWeight = HEIGHT_WEIGHT;
+    private double linesWeight = LINES_WEIGHT;
+    private double holesWeight = HOLES_WEIGHT;
+    private double bumpinessWeight = BUMPINESS_WEIGHT;
+
+    /* Changed with the weights, so the cached scores of the old weights are dropped. */
+    private volatile int weightsVersion = 0;
+
+    /* Only used by the thread which calls move(). */
+    private final PlacementSearch search;
+    private final Zobrist zobrist;
+    private final long[] board;
+    private long boardHash = 0;
+    private final double[] scores;
+    private final InputType[] moves;
+
+    /* Buffers of every thread evaluating the candidates. */
+    private final ThreadLocal<Evaluator> evaluators;
+    private final List<Evaluator> allEvaluators = new ArrayList<>();
+
+    /* Next tetromino of the current choice, read by the evaluating threads. */
+    private TetrominoType nextType = null;
+
+    /**
+     * Constructs the player for maps of the given sizes.
+     * @param Int - rowNum
+     * @param Int - colNum
+     * @param Boolean - lookAhead, true to search the placements of the next tetromino of a PieceQueue too.
+     * @param ForkJoinPool - pool evaluating the candidates, null to evaluate them on the calling thread.
+     * @param Int - cacheSize, entries of the cache of every evaluating thread, 0 to evaluate every map again.
+     * @throws IllegalArgumentException - When the column number doesn't fit into a row mask.
+     */
+    public AutoPlayer(int rowNum, int colNum, boolean lookAhead, ForkJoinPool pool, int cacheSize) throws IllegalArgumentException {
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+        this.lookAhead = lookAhead;
+        this.pool = pool;
+        this.cacheSize = cacheSize;
+
+        search = new PlacementSearch(rowNum, colNum);
+        zobrist = Zobrist.of(rowNum, colNum);
+        fullRowMask = (colNum == Long.SIZE) ? -1L : (1L << colNum) - 1;
+        board = new long[rowNum];
+        scores = new double[search.maxPathLength()];
+        moves = new InputType[search.maxPathLength()];
+        evaluators = ThreadLocal.withInitial(Evaluator::new);
+    }
+
+    /**
+     * Constructs the player for maps of the given sizes without a cache.
+     * @param Int - rowNum
+     * @param Int - colNum
+     * @param Boolean - lookAhead, true to search the placements of the next tetromino of a PieceQueue too.
+     * @param ForkJoinPool - pool evaluating the candidates, null to evaluate them on the calling thread.
+     * @throws IllegalArgumentException - When the column number doesn't fit into a row mask.
+     */
+    public AutoPlayer(int rowNum, int colNum, boolean lookAhead, ForkJoinPool pool) throws IllegalArgumentException {
+        this(rowNum, colNum, lookAhead, pool, 0);
+    }
+
+    /**
+     * Constructs the player which evaluates the candidates on the common pool.
+     * @param Int - rowNum
+     * @param Int - colNum
+     * @param Boolean - lookAhead, true to search the placements of the next tetromino of a PieceQueue too.
+     */
+    public AutoPlayer(int rowNum, int colNum, boolean lookAhead) {
+        this(rowNum, colNum, lookAhead, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Changes the weights of the heuristic, a map's score is the sum of its features multiplied by their weights.
+     * @param Double - heightWeight, weight of the sum of the column heights.
+     * @param Double - linesWeight, weight of the cleared lines.
+     * @param Double - holesWeight, weight of the empty cells under the column tops.
+     * @param Double - bumpinessWeight, weight of the sum of the height differences of the neighbour columns.
+     */
+    public void setWeights(double heightWeight, double linesWeight, double holesWeight, double bumpinessWeight) {
+        this.heightWeight = heightWeight;
+        this.linesWeight = linesWeight;
+        this.holesWeight = holesWeight;
+        this.bumpinessWeight = bumpinessWeight;
+        ++weightsVersion;
+    }
+
+    @Override
+    public void newGame(long seed) {
+        /* The choices don't depend on random values. */
+    }
+
+    /**
+     * Moves the current tetromino to the best placement and locks it there with a hard drop.
+     * @param GameSession - session to be played.
+     */
+    @Override
+    public void move(GameSession session) {
+        AbstractTetris tetris = session.getTetris();
+        if (!tetris.currentTetrominoStatus()) return;
+
+        PieceSource source = session.getSource();
+        TetrominoType next = (lookAhead && source instanceof PieceQueue) ? ((PieceQueue) source).peek(0) : null;
+
+        int best = choose(tetris, tetris.curTetromino, next);
+        if (best < 0) return;
+
+        int moveNum = search.path(best, moves);
+        for (int i = 0; i < moveNum; ++i) {
+            session.apply(moves[i]);
+        }
+        session.apply(InputType.HardDrop);
+    }
+
+    /**
+     * Finds the best placement of the given tetromino on the map of the given tetris.
+     * @param AbstractTetris - tetris whose map is searched.
+     * @param Tetromino - t to be placed, its position is the start of the search.
+     * @param TetrominoType - next tetromino to be searched on every resulting map, null to score only the placements of t.
+     * @return Int - Index of the best placement in getSearch(), -1 if there isn't any placement.
+     */
+    public int choose(AbstractTetris tetris, Tetromino t, TetrominoType next) {
+        int candidateNum = search.search(tetris, t);
+        if (candidateNum == 0) return -1;
+
+        tetris.copyOccupancy(board, 0, rowNum);
+        boardHash = tetris.boardHash();
+        nextType = next;
+
+        int leafSize = (next == null) ? LEAF_CANDIDATES : LEAF_CANDIDATES_LOOKAHEAD;
+        if (pool == null || candidateNum <= leafSize) {
+            evaluate(0, candidateNum);
+        }
+        else {
+            pool.invoke(new EvaluateTask(0, candidateNum, leafSize));
+        }
+
+        /* The first one of the equally scored placements is chosen, so the choice is the same on any number of threads. */
+        int best = 0;
+        for (int i = 1; i < candidateNum; ++i) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        return best;
+    }
+
+    /**
+     *
+     * @return PlacementSearch - Search of the last choice, the chosen index refers to its placements.
+     */
+    public PlacementSearch getSearch() { return search; }
+
+    private class EvaluateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        EvaluateTask(int from, int to, int leafSize) {
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= leafSize) {
+                evaluate(from, to);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(from, middle, leafSize), new EvaluateTask(middle, to, leafSize));
+        }
+    }
+
+    /**
+     * Sums the hits and misses of the caches of every thread which evaluated candidates, only valid while no choice is running.
+     * @return Long[] - Hit and miss counts, in this order.
+     */
+    public long[] cacheStats() {
+        long[] stats = new long[2];
+        for (Evaluator evaluator : allEvaluators) {
+            if (evaluator.cache == null) continue;
+            stats[0] += evaluator.cache.hitCount();
+            stats[1] += evaluator.cache.missCount();
+        }
+        return stats;
+    }
+
+    /* Scores the candidates in [from, to) with the buffers of the current thread. */
+    private void evaluate(int from, int to) {
+        Evaluator evaluator = evaluators.get();
+        if (evaluator.weightsVersion != weightsVersion) {
+            if (evaluator.cache != null) evaluator.cache.clear();
+            evaluator.weightsVersion = weightsVersion;
+        }
+        for (int i = from; i < to; ++i) {
+            scores[i] = evaluator.score(i);
+        }
+    }
+
+    /* Buffers of one evaluating thread. */
+    private class Evaluator {
+        private final PlacementSearch nextSearch = new PlacementSearch(rowNum, colNum);
+        private final long[] placed = new long[rowNum];
+        private final long[] nextPlaced = new long[rowNum];
+        private final int[] heights = new int[colNum];
+        private final EvaluationCache cache = (cacheSize > 0) ? new EvaluationCache(cacheSize) : null;
+        private int weightsVersion = -1;
+
+        Evaluator() {
+            synchronized (allEvaluators) {
+                allEvaluators.add(this);
+            }
+        }
+
+        /* Score of the map after the i'th placement, and after the best placement of the next tetromino if it's given. */
+        double score(int idx) {
+            int lines = place(board, search.getShape(idx), search.getStartX(idx), search.getStartY(idx), placed);
+            if (nextType == null) return evaluate(placed) + linesWeight * lines;
+
+            /* The best score after the next tetromino only depends on the map and the type, the lines of this placement are added to it. */
+            double best;
+            if (cache == null) {
+                best = nextScore();
+            }
+            else {
+                long key = placedHash(board, boardHash, search.getShape(idx), search.getStartX(idx), search.getStartY(idx), lines) ^ NEXT_KEYS[nextType.ordinal()];
+                best = cache.get(key);
+                if (Double.isNaN(best)) {
+                    best = nextScore();
+                    cache.put(key, best);
+                }
+            }
+            return (best == LOST_SCORE) ? LOST_SCORE : best + linesWeight * lines;
+        }
+
+        /* Best score of the maps after the next tetromino is placed on the placed map, without the lines of the placed map. */
+        double nextScore() {
+            /* The next tetromino is added at the top in the middle in its first rotation. */
+            TetrominoShape nextShape = TetrominoShape.of(nextType, 0);
+            int nextNum = nextSearch.search(placed, nextType, 0, 0, (colNum - nextShape.getActiveColNum()) / 2);
+
+            double best = LOST_SCORE;
+            for (int j = 0; j < nextNum; ++j) {
+                int nextLines = place(placed, nextSearch.getShape(j), nextSearch.getStartX(j), nextSearch.getStartY(j), nextPlaced);
+                best = Math.max(best, evaluate(nextPlaced) + linesWeight * nextLines);
+            }
+            return best;
+        }
+
+        /* Copies the map with the given shape locked on it to the destination and removes the full rows, returns the number of removed rows. */
+        int place(long[] rows, TetrominoShape shape, int startX, int startY, long[] destination) {
+            System.arraycopy(rows, 0, destination, 0, rowNum);
+
+            /* The maps don't have full rows, so only the rows of the shape can be full. */
+            int lowestFull = -1;
+            for (int i = 0; i < shape.getActiveRowNum(); ++i) {
+                destination[startX + i] |= (long) shape.getRowMask(i) << startY;
+                if (destination[startX + i] == fullRowMask) lowestFull = startX + i;
+            }
+            if (lowestFull < 0) return 0;
+
+            int writeIdx = lowestFull;
+            for (int readIdx = lowestFull; readIdx >= 0; --readIdx) {
+                if (destination[readIdx] != fullRowMask) destination[writeIdx--] = destination[readIdx];
+            }
+            int removedNum = writeIdx + 1;
+            for (int i = writeIdx; i >= 0; --i) {
+                destination[i] = 0;
+            }
+            return removedNum;
+        }
+
+        /*
+         * Hash of the map which place() made in placed from the given map with the given hash. Without removed rows only the blocks
+         * of the shape change it; else the rows down to the lowest removed one moved, so only those rows are hashed again.
+         */
+        long placedHash(long[] rows, long hash, TetrominoShape shape, int startX, int startY, int removedNum) {
+            if (removedNum == 0) return hash ^ zobrist.shapeHash(shape, startX, startY);
+
+            int lowestFull = startX + shape.getActiveRowNum() - 1;
+            while ((rows[lowestFull] | ((long) shape.getRowMask(lowestFull - startX) << startY)) != fullRowMask) --lowestFull;
+
+            /* Blocks of the shape below the lowest removed row stay where they are. */
+            for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+                int row = startX + shape.getCellRow(k);
+                if (row > lowestFull) hash ^= zobrist.key(row, startY + shape.getCellCol(k));
+            }
+            return hash ^ zobrist.hash(rows, 0, lowestFull + 1) ^ zobrist.hash(placed, 0, lowestFull + 1);
+        }
+
+        /* Weighted sum of the features of the given map, without the cleared lines. */
+        double evaluate(long[] rows) {
+            for (int j = 0; j < colNum; ++j) {
+                heights[j] = 0;
+            }
+
+            /* A cell is a hole if it's empty and a block is above it in its column. */
+            int holes = 0;
+            long covered = 0;
+            for (int i = 0; i < rowNum; ++i) {
+                holes += Long.bitCount(covered & ~rows[i]);
+
+                long found = rows[i] & ~covered;
+                while (found != 0) {
+                    heights[Long.numberOfTrailingZeros(found)] = rowNum - i;
+                    found &= found - 1;
+                }
+                covered |= rows[i];
+            }
+
+            int height = heights[0];
+            int bumpiness = 0;
+            for (int j = 1; j < colNum; ++j) {
+                height += heights[j];
+                bumpiness += Math.abs(heights[j] - heights[j-1]);
+            }
+
+            return heightWeight * height + holesWeight * holes + bumpinessWeight * bumpiness;
+        }
+    }
+
+    private static long[] createNextKeys() {
+        SplitMix64 randomGenerator = new SplitMix64(0x6e657874L);
+        long[] keys = new long[TetrominoType.values().length];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = randomGenerator.nextLong();
+        }
+        return keys;
+    }
+
+}
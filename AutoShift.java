@@ -0,0 +1,156 @@
+
+/**
+* <h1>AutoShift Class</h1>
+* Delayed auto shift (DAS) and auto repeat rate (ARR) of the held left and right keys. <br>
+* A pressed key moves the tetromino once; if it's still held after the DAS delay, the tetromino moves again every ARR interval,
+* several times in one update if the interval is shorter than the time between updates. An ARR of 0 moves it to the wall at once. <br>
+* Only the given times are used, not the clock, so the same key times and update times give the same moves.
+* The moves are applied to the session as inputs, so a recorded game replays them exactly.
+*
+* @author Emre Oytun
+*/
+public class AutoShift {
+
+    private long dasNanos;
+    private long arrNanos;
+
+    private boolean leftDown = false;
+    private boolean rightDown = false;
+
+    /* Direction of the held key which shifts the tetromino, null if no key is held. */
+    private InputType direction = null;
+
+    /* Time of the next shift. */
+    private long shiftTime = 0;
+
+    /* State version when the last shift was blocked, it's not tried again before the game changes. */
+    private long blockedVersion = -1;
+
+    /**
+     * Constructs the auto shift with the given delays.
+     * @param Long - dasNanos, delay from a press until the auto shift starts.
+     * @param Long - arrNanos, interval between the auto shifts, 0 moves the tetromino to the wall at once.
+     * @throws IllegalArgumentException - When a delay is negative.
+     */
+    public AutoShift(long dasNanos, long arrNanos) throws IllegalArgumentException {
+        setDelays(dasNanos, arrNanos);
+    }
+
+    /**
+     * Changes the delays, the held key continues with the new ones after its next shift.
+     * @param Long - dasNanos
+     * @param Long - arrNanos
+     * @throws IllegalArgumentException - When a delay is negative.
+     */
+    public void setDelays(long dasNanos, long arrNanos) throws IllegalArgumentException {
+        if (dasNanos < 0 || arrNanos < 0) {
+            throw new IllegalArgumentException("Delays DAS: " + dasNanos + " ARR: " + arrNanos + " are invalid.");
+        }
+        this.dasNanos = dasNanos;
+        this.arrNanos = arrNanos;
+    }
+
+    /**
+     * Handles a press of the left or the right key, the repeated presses of a held key are ignored.
+     * @param GameSession - session to be moved.
+     * @param InputType - Left or Right.
+     * @param Long - time of the press in nanoseconds.
+     */
+    public void press(GameSession session, InputType input, long time) {
+        if (input == InputType.Left) {
+            if (leftDown) return;
+            leftDown = true;
+        }
+        else if (input == InputType.Right) {
+            if (rightDown) return;
+            rightDown = true;
+        }
+        else return;
+
+        /* The last pressed key wins when both are held. */
+        direction = input;
+        shiftTime = time + dasNanos;
+        blockedVersion = -1;
+        shift(session);
+    }
+
+    /**
+     * Handles a release of the left or the right key. If the other key is still held, it starts its own delay.
+     * @param InputType - Left or Right.
+     * @param Long - time of the release in nanoseconds.
+     */
+    public void release(InputType input, long time) {
+        if (input == InputType.Left) leftDown = false;
+        else if (input == InputType.Right) rightDown = false;
+        else return;
+
+        if (direction != input) return;
+
+        InputType other = (input == InputType.Left) ? InputType.Right : InputType.Left;
+        if ((other == InputType.Left) ? leftDown : rightDown) {
+            direction = other;
+            shiftTime = time + dasNanos;
+            blockedVersion = -1;
+        }
+        else {
+            direction = null;
+        }
+    }
+
+    /**
+     * Releases both keys, like when the game is paused.
+     */
+    public void reset() {
+        leftDown = false;
+        rightDown = false;
+        direction = null;
+    }
+
+    /**
+     * Applies the auto shifts which are due until the given time.
+     * @param GameSession - session to be moved.
+     * @param Long - now, current time in nanoseconds.
+     * @return Int - Number of applied shifts.
+     */
+    public int update(GameSession session, long now) {
+        if (direction == null || now < shiftTime) return 0;
+
+        AbstractTetris tetris = session.getTetris();
+        if (!tetris.currentTetrominoStatus() || tetris.stateVersion() == blockedVersion) {
+            /* Charged shifts don't pile up while the tetromino can't move. */
+            shiftTime = now;
+            return 0;
+        }
+
+        int shiftNum = 0;
+        while (shiftTime <= now) {
+            if (!shift(session)) {
+                shiftTime = now;
+                break;
+            }
+            ++shiftNum;
+            shiftTime += arrNanos;
+        }
+        return shiftNum;
+    }
+
+    /**
+     * 
+     * @return Boolean - True if the left or the right key is held, false otherwise.
+     */
+    public boolean isShifting() { return direction != null; }
+
+    /* Moves the tetromino one column, returns false if it's blocked. */
+    private boolean shift(GameSession session) {
+        AbstractTetris tetris = session.getTetris();
+        if (!tetris.currentTetrominoStatus()) return false;
+
+        long version = tetris.stateVersion();
+        session.apply(direction);
+        if (tetris.stateVersion() != version) return true;
+
+        blockedVersion = version;
+        return false;
+    }
+
+}
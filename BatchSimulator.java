@@ -0,0 +1,207 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+* <h1>BatchSimulator Class</h1>
+* Plays many independent seeded games in parallel on a ForkJoinPool and aggregates their results. <br>
+* Every worker thread reuses its own engine and strategy, and the results are added to LongAdders, so the games don't share
+* any state which they would contend on. Game i is played with the seed derived from the base seed and i, so a batch can be repeated
+* with any number of threads.
+* <br><br>
+* Usage: java BatchSimulator [-games 10000] [-size 20x10] [-threads N] [-seed 1] [-maxPieces 10000] [-strategy random|auto|lookahead]
+*
+* @author Emre Oytun
+*/
+public class BatchSimulator {
+
+    /* Games played by one task without splitting it. */
+    private static final int LEAF_GAMES = 8;
+
+    /* Game lengths are counted in buckets of powers of two: bucket k has the games with [2^(k-1), 2^k) placed pieces. */
+    public static final int BUCKET_NUM = Integer.SIZE;
+
+    private final int rowNum;
+    private final int colNum;
+    private final int maxPieces;
+
+    private final ThreadLocal<AbstractTetris> engines;
+    private final ThreadLocal<GameStrategy> strategies;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder pieces = new LongAdder();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder[] lengthBuckets = new LongAdder[BUCKET_NUM];
+
+    /**
+     * Constructs the simulator with the given parameters.
+     * @param Int - rowNum of the maps.
+     * @param Int - colNum of the maps.
+     * @param Int - maxPieces, a game is stopped after this many placed pieces.
+     * @param Supplier - strategy, creates the strategy of every worker thread.
+     */
+    public BatchSimulator(int rowNum, int colNum, int maxPieces, Supplier<GameStrategy> strategy) {
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+        this.maxPieces = maxPieces;
+
+        engines = ThreadLocal.withInitial(() -> new TetrisVector(rowNum, colNum));
+        strategies = ThreadLocal.withInitial(strategy);
+        for (int i = 0; i < BUCKET_NUM; ++i) {
+            lengthBuckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Plays the given number of games on the given pool, and waits until they end.
+     * @param ForkJoinPool - pool
+     * @param Int - gameNum
+     * @param Long - seed of the batch.
+     */
+    public void run(ForkJoinPool pool, int gameNum, long seed) {
+        pool.invoke(new GamesTask(0, gameNum, seed));
+    }
+
+    private class GamesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final long seed;
+
+        GamesTask(int from, int to, long seed) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_GAMES) {
+                for (int i = from; i < to; ++i) play(gameSeed(seed, i));
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new GamesTask(from, middle, seed), new GamesTask(middle, to, seed));
+        }
+    }
+
+    /* Plays one game with the engine and the strategy of the current thread. */
+    private void play(long seed) {
+        AbstractTetris tetris = engines.get();
+        GameStrategy strategy = strategies.get();
+
+        tetris.reset();
+        strategy.newGame(seed);
+        GameSession session = new GameSession(tetris, new PieceQueue(new SevenBagPieceSource(seed), 1));
+
+        while (!session.isOver() && session.piecesPlaced() < maxPieces) {
+            session.spawnIfNeeded();
+            if (tetris.currentTetrominoStatus()) strategy.move(session);
+            session.tick();
+        }
+
+        int placed = session.piecesPlaced();
+        games.increment();
+        pieces.add(placed);
+        lines.add(session.linesCleared());
+        moves.add(tetris.numberOfMoves());
+        lengthBuckets[Integer.SIZE - Integer.numberOfLeadingZeros(placed)].increment();
+    }
+
+    /* Seed of the i'th game, mixed so the seeds of consecutive games are unrelated. */
+    private static long gameSeed(long seed, int i) {
+        return new SplitMix64(seed + i * 0x9e3779b97f4a7c15L).nextLong();
+    }
+
+    /**
+     * 
+     * @return Long - Number of played games.
+     */
+    public long gameCount() { return games.sum(); }
+
+    /**
+     * 
+     * @return Long - Number of pieces placed in all games.
+     */
+    public long pieceCount() { return pieces.sum(); }
+
+    /**
+     * 
+     * @return Long - Number of lines cleared in all games.
+     */
+    public long lineCount() { return lines.sum(); }
+
+    /**
+     * 
+     * @return Long - Number of moves in all games.
+     */
+    public long moveCount() { return moves.sum(); }
+
+    /**
+     * 
+     * @param Int - Index of the bucket.
+     * @return Long - Number of games whose placed pieces are in [2^(idx-1), 2^idx), bucket 0 has the games without pieces.
+     */
+    public long lengthCount(int idx) { return lengthBuckets[idx].sum(); }
+
+    public static void main(String[] args) {
+        int gameNum = 10000;
+        int rowNum = 20;
+        int colNum = 10;
+        int threadNum = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int maxPieces = 10000;
+        String strategyName = "random";
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-games")) gameNum = Integer.parseInt(args[i+1]);
+            else if (args[i].equals("-size")) {
+                String[] parts = args[i+1].split("x");
+                rowNum = Integer.parseInt(parts[0]);
+                colNum = Integer.parseInt(parts[1]);
+            }
+            else if (args[i].equals("-threads")) threadNum = Integer.parseInt(args[i+1]);
+            else if (args[i].equals("-seed")) seed = Long.parseLong(args[i+1]);
+            else if (args[i].equals("-maxPieces")) maxPieces = Integer.parseInt(args[i+1]);
+            else if (args[i].equals("-strategy")) strategyName = args[i+1];
+            else throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+
+        /* The games are already played in parallel, so the auto players evaluate their candidates on their own threads. */
+        int rows = rowNum;
+        int cols = colNum;
+        Supplier<GameStrategy> strategy;
+        if (strategyName.equals("random")) strategy = RandomStrategy::new;
+        else if (strategyName.equals("auto")) strategy = () -> new AutoPlayer(rows, cols, false, null);
+        else if (strategyName.equals("lookahead")) strategy = () -> new AutoPlayer(rows, cols, true, null);
+        else throw new IllegalArgumentException("Unknown strategy: " + strategyName);
+
+        BatchSimulator simulator = new BatchSimulator(rowNum, colNum, maxPieces, strategy);
+        ForkJoinPool pool = new ForkJoinPool(threadNum);
+
+        long start = System.nanoTime();
+        simulator.run(pool, gameNum, seed);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        long games = simulator.gameCount();
+        System.out.printf("games: %d  threads: %d  time: %.3f s  games/sec: %.1f%n", games, threadNum, seconds, games / seconds);
+        System.out.printf("pieces: %d (%.2f per game)  lines: %d (%.3f per game)  moves: %d%n",
+                simulator.pieceCount(), (double) simulator.pieceCount() / games,
+                simulator.lineCount(), (double) simulator.lineCount() / games, simulator.moveCount());
+
+        System.out.println("game length (placed pieces):");
+        for (int k = 0; k < BUCKET_NUM; ++k) {
+            long count = simulator.lengthCount(k);
+            if (count == 0) continue;
+            long low = (k == 0) ? 0 : 1L << (k - 1);
+            long high = (k == 0) ? 0 : (1L << k) - 1;
+            System.out.printf("  %8d - %-8d %10d%n", low, high, count);
+        }
+    }
+
+}
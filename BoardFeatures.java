@@ -0,0 +1,174 @@
+
+/**
+* <h1>BoardFeatures Class</h1>
+* Features of the locked blocks of a tetris map which the heuristics score: column heights, holes, wells and transitions. <br>
+* The tetris keeps them up to date when a tetromino is locked and when lines are removed, so reading a feature doesn't scan the map:
+* a column's feature is O(1) and a sum over the columns is O(number of columns). It's only read by the other classes.
+* <br><br>
+* A hole is an empty cell below the highest block of its column. A well is a column lower than both of its neighbours, the walls are as
+* high as the map. Transitions are the neighbour cells of which one is filled and the other one is empty; for the row transitions the walls
+* are filled, for the column transitions the cell above the map is empty and the floor is filled.
+*
+* @author Emre Oytun
+*/
+public class BoardFeatures {
+
+    private final int rowNum;
+    private final int colNum;
+
+    /* Shared with the tetris, row of the highest block of every column, rowNum if the column is empty. */
+    private final int[] columnTops;
+
+    /* Changed by the tetris through the package-private methods. */
+    private final int[] filledCells;
+    private int rowTransitions;
+    private int columnTransitions;
+
+    BoardFeatures(int rowNum, int colNum, int[] columnTops) {
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+        this.columnTops = columnTops;
+        filledCells = new int[colNum];
+        clear();
+    }
+
+    /* Features of the empty map. */
+    void clear() {
+        for (int j = 0; j < colNum; ++j) {
+            filledCells[j] = 0;
+        }
+        rowTransitions = 2 * rowNum;
+        columnTransitions = colNum;
+    }
+
+    /* Adds a locked block at the given column, with the transitions it changes. */
+    void addBlock(int col, int rowTransitionDelta, int columnTransitionDelta) {
+        ++filledCells[col];
+        rowTransitions += rowTransitionDelta;
+        columnTransitions += columnTransitionDelta;
+    }
+
+    void addColumnTransitions(int delta) {
+        columnTransitions += delta;
+    }
+
+    /* Removes the given number of full rows, which have a block in every column and no row transitions; the new empty rows have one at each wall. */
+    void removeRows(int count) {
+        for (int j = 0; j < colNum; ++j) {
+            filledCells[j] -= count;
+        }
+        rowTransitions += 2 * count;
+    }
+
+    void setTransitions(int rowTransitions, int columnTransitions) {
+        this.rowTransitions = rowTransitions;
+        this.columnTransitions = columnTransitions;
+    }
+
+    void set(int[] filledCells, int rowTransitions, int columnTransitions) {
+        System.arraycopy(filledCells, 0, this.filledCells, 0, colNum);
+        setTransitions(rowTransitions, columnTransitions);
+    }
+
+    void copyFilledCells(int[] destination) {
+        System.arraycopy(filledCells, 0, destination, 0, colNum);
+    }
+
+    /**
+     *
+     * @param Int - col
+     * @return Int - Height of the locked blocks at the given column, 0 if the column is empty.
+     */
+    public int columnHeight(int col) { return rowNum - columnTops[col]; }
+
+    /**
+     *
+     * @return Int - Sum of the heights of the columns.
+     */
+    public int aggregateHeight() {
+        int height = 0;
+        for (int j = 0; j < colNum; ++j) {
+            height += rowNum - columnTops[j];
+        }
+        return height;
+    }
+
+    /**
+     *
+     * @return Int - Height of the highest column.
+     */
+    public int maxHeight() {
+        int top = rowNum;
+        for (int j = 0; j < colNum; ++j) {
+            top = Math.min(top, columnTops[j]);
+        }
+        return rowNum - top;
+    }
+
+    /**
+     *
+     * @param Int - col
+     * @return Int - Number of the holes of the given column.
+     */
+    public int holes(int col) { return rowNum - columnTops[col] - filledCells[col]; }
+
+    /**
+     *
+     * @return Int - Number of the holes of all columns.
+     */
+    public int holeCount() {
+        int holes = 0;
+        for (int j = 0; j < colNum; ++j) {
+            holes += rowNum - columnTops[j] - filledCells[j];
+        }
+        return holes;
+    }
+
+    /**
+     *
+     * @param Int - col
+     * @return Int - Depth of the well at the given column, 0 if it isn't lower than both of its neighbours.
+     */
+    public int wellDepth(int col) {
+        int left = (col == 0) ? rowNum : columnHeight(col - 1);
+        int right = (col == colNum - 1) ? rowNum : columnHeight(col + 1);
+        return Math.max(0, Math.min(left, right) - columnHeight(col));
+    }
+
+    /**
+     *
+     * @return Int - Sum of the depths of the wells.
+     */
+    public int wellDepthSum() {
+        int depth = 0;
+        for (int j = 0; j < colNum; ++j) {
+            depth += wellDepth(j);
+        }
+        return depth;
+    }
+
+    /**
+     *
+     * @return Int - Sum of the height differences of the neighbour columns.
+     */
+    public int bumpiness() {
+        int bumpiness = 0;
+        for (int j = 1; j < colNum; ++j) {
+            bumpiness += Math.abs(columnTops[j] - columnTops[j-1]);
+        }
+        return bumpiness;
+    }
+
+    /**
+     *
+     * @return Int - Number of the row transitions of the map.
+     */
+    public int rowTransitions() { return rowTransitions; }
+
+    /**
+     *
+     * @return Int - Number of the column transitions of the map.
+     */
+    public int columnTransitions() { return columnTransitions; }
+
+}
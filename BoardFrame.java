@@ -0,0 +1,142 @@
+
+/**
+* <h1>BoardFrame Class</h1>
+* One rendered frame of a tetris game: the locked blocks of the map and the current tetromino over them. <br>
+* Frames are reused by the FrameBuffer, so a borrowed frame should only be read until the next borrow.
+*
+* @author Emre Oytun
+*/
+public class BoardFrame {
+
+    private final int rowNum;
+    private final int colNum;
+
+    /* Locked blocks of the map, without the current tetromino. */
+    private final char[][] cells;
+
+    private long version = -1;
+    private long lockVersion = -1;
+    private boolean status = true;
+
+    private boolean isTetrominoActive = false;
+    private TetrominoShape shape = null;
+    private int startX = 0;
+    private int startY = 0;
+    private int ghostX = 0;
+
+    /**
+     * Constructs an empty frame with the given sizes.
+     * @param rowNum
+     * @param colNum
+     */
+    public BoardFrame(int rowNum, int colNum) {
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+
+        cells = new char[rowNum][colNum];
+        for (int i = 0; i < rowNum; ++i) {
+            for (int j = 0; j < colNum; ++j) {
+                cells[i][j] = ' ';
+            }
+        }
+    }
+
+    /**
+     * 
+     * @param Int - row
+     * @param Int - col
+     * @return Char - Block at the given position with the current tetromino drawn over the locked blocks, ' ' if it's empty.
+     */
+    public char get(int row, int col) {
+        if (isTetrominoActive && shape.isBlock(row - startX, col - startY)) return shape.getSymbol();
+        return cells[row][col];
+    }
+
+    /**
+     * 
+     * @param Int - row
+     * @param Int - col
+     * @return Char - Locked block at the given position, ' ' if it's empty.
+     */
+    public char getLocked(int row, int col) { return cells[row][col]; }
+
+    /**
+     * 
+     * @return Int - Row number of the frame.
+     */
+    public int getRowNum() { return rowNum; }
+
+    /**
+     * 
+     * @return Int - Column number of the frame.
+     */
+    public int getColNum() { return colNum; }
+
+    /**
+     * 
+     * @return Long - Version of the game state this frame shows, it changes on every change of the game.
+     */
+    public long getVersion() { return version; }
+
+    /**
+     * 
+     * @return Long - Version of the locked blocks, it changes only when a tetromino is locked.
+     */
+    public long getLockVersion() { return lockVersion; }
+
+    /**
+     * 
+     * @return Boolean - True if the game continues, false otherwise.
+     */
+    public boolean gameStatus() { return status; }
+
+    /**
+     * 
+     * @return Boolean - True if the frame has an active tetromino, false otherwise.
+     */
+    public boolean isTetrominoActive() { return isTetrominoActive; }
+
+    /**
+     * 
+     * @return TetrominoShape - Shape of the current tetromino.
+     */
+    public TetrominoShape getShape() { return shape; }
+
+    /**
+     * 
+     * @return Int - Start X position of the current tetromino.
+     */
+    public int getStartX() { return startX; }
+
+    /**
+     * 
+     * @return Int - Start Y position of the current tetromino.
+     */
+    public int getStartY() { return startY; }
+
+    /**
+     * 
+     * @return Int - Start X position where the current tetromino would land if it was dropped.
+     */
+    public int getGhostX() { return ghostX; }
+
+    /* Locked blocks are only copied when they changed since this frame was last filled. */
+    char[][] lockedCells() { return cells; }
+
+    void setLockVersion(long lockVersion) {
+        this.lockVersion = lockVersion;
+    }
+
+    void setState(long version, boolean status, Tetromino t, int ghostX) {
+        this.version = version;
+        this.status = status;
+        this.isTetrominoActive = (t != null);
+        if (t != null) {
+            shape = t.getShape();
+            startX = t.getStartX();
+            startY = t.getStartY();
+            this.ghostX = ghostX;
+        }
+    }
+
+}
@@ -0,0 +1,320 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+* <h1>BoardHistory Class</h1>
+* Keeps every version of the locked blocks of a game, one after every locked tetromino, so the game can be rewound to any of them. <br>
+* The versions are persistent lists of immutable rows from the highest filled row down to the floor, and the empty rows above them
+* aren't stored. A new version only creates the rows from the top of the stack down to the lowest changed row and links them to the
+* rows of the previous version below it; the rows which only moved share their cells with the previous version. Since tetrominos lock at the
+* top of the stack, a version usually costs a few small row objects, whatever the length of the game. <br>
+* The versions are built from the events of the tetris, so they don't read the map. Finding a version is O(1), and a search can keep
+* a version to come back to without copying the map. Every version also keeps the column tops, the features and the hash of its map,
+* so rewinding a game only writes the rows from the top of the higher stack down and doesn't find them again from the map.
+*
+* @author Emre Oytun
+*/
+public class BoardHistory {
+
+    /* Immutable row of a version, with the rows below it. */
+    private static final class Row {
+        final char[] cells;
+        final Row below;
+
+        /* Number of the rows from this one down to the floor. */
+        final int height;
+
+        Row(char[] cells, Row below) {
+            this.cells = cells;
+            this.below = below;
+            this.height = (below == null) ? 1 : below.height + 1;
+        }
+    }
+
+    /* Locked blocks, their features and the counters after a locked tetromino. */
+    private static final class Version {
+        final Row top;
+        final int[] columnTops;
+        final int[] filledCells;
+        final int rowTransitions;
+        final int columnTransitions;
+        final long boardHash;
+        final int totalMoves;
+        final int totalLines;
+        final int totalLocked;
+        final long[] sourceState;
+
+        Version(Row top, AbstractTetris tetris, long[] sourceState) {
+            this.top = top;
+            columnTops = new int[tetris.colNum];
+            filledCells = new int[tetris.colNum];
+            boardHash = tetris.saveLockState(columnTops, filledCells);
+            rowTransitions = tetris.features().rowTransitions();
+            columnTransitions = tetris.features().columnTransitions();
+            totalMoves = tetris.numberOfMoves();
+            totalLines = tetris.numberOfClearedLines();
+            totalLocked = tetris.numberOfLockedTetrominos();
+            this.sourceState = sourceState;
+        }
+    }
+
+    private final AbstractTetris tetris;
+    private final GameSession session;
+    private final int rowNum;
+    private final int colNum;
+
+    private final List<Version> versions = new ArrayList<>();
+    private final TetrisListener listener = new HistoryListener();
+
+    /* Buffer used while building a version. */
+    private final Row[] path;
+
+    private long createdRowNum = 0;
+    private long createdCellsNum = 0;
+
+    /**
+     * Starts the history of the given session's game, the current locked blocks are the first version.
+     * Rewinding it restores the piece source too, so the same tetrominos come again.
+     * @param GameSession - session
+     */
+    public BoardHistory(GameSession session) {
+        this(session.getTetris(), session);
+    }
+
+    /**
+     * Starts the history of the given game, the current locked blocks are the first version.
+     * @param AbstractTetris - tetris
+     */
+    public BoardHistory(AbstractTetris tetris) {
+        this(tetris, null);
+    }
+
+    private BoardHistory(AbstractTetris tetris, GameSession session) {
+        this.tetris = tetris;
+        this.session = session;
+        this.rowNum = tetris.rowNum;
+        this.colNum = tetris.colNum;
+
+        path = new Row[rowNum];
+
+        /* Only the rows from the highest filled one down are stored. */
+        char[][] map = new char[rowNum][colNum];
+        tetris.copyBoard(map);
+        int topRow = 0;
+        while (topRow < rowNum && isEmpty(map[topRow])) ++topRow;
+
+        Row top = null;
+        for (int i = rowNum - 1; i >= topRow; --i) {
+            top = new Row(map[i], top);
+            ++createdRowNum;
+            ++createdCellsNum;
+        }
+        pushVersion(top);
+
+        tetris.addListener(listener);
+    }
+
+    /**
+     * Stops recording the game, the recorded versions are kept.
+     */
+    public void detach() {
+        tetris.removeListener(listener);
+    }
+
+    /**
+     *
+     * @return Int - Number of the versions, the first one is the game when the history started.
+     */
+    public int versionCount() { return versions.size(); }
+
+    /**
+     * Rewinds the game to the given version; there is no active tetromino after it and the later versions are dropped. <br>
+     * Only the rows from the top of the current stack or of the version's stack, whichever is higher, down to the floor are written.
+     * Only called by the thread which plays the game.
+     * @param Int - version
+     * @throws IndexOutOfBoundsException - When there isn't such a version.
+     */
+    public void rewind(int version) throws IndexOutOfBoundsException {
+        Version v = versions.get(version);
+
+        /* The rows above both stacks are empty in both maps. */
+        int topRow = (v.top == null) ? rowNum : rowNum - v.top.height;
+        int fromRow = Math.min(tetris.stackTop(), topRow);
+        Row row = v.top;
+        for (int i = fromRow; i < rowNum; ++i) {
+            if (i < topRow) {
+                tetris.loadRow(i, null);
+            }
+            else {
+                tetris.loadRow(i, row.cells);
+                row = row.below;
+            }
+        }
+        tetris.restoreLockState(fromRow, v.columnTops, v.filledCells, v.rowTransitions, v.columnTransitions, v.boardHash,
+                v.totalMoves, v.totalLines, v.totalLocked);
+
+        if (session != null) session.getSource().restoreState(v.sourceState, 0);
+
+        while (versions.size() > version + 1) {
+            versions.remove(versions.size() - 1);
+        }
+    }
+
+    /**
+     * Rewinds the game to the version before the last locked tetromino.
+     * @return Boolean - True if the game is rewound, false if there isn't a locked tetromino in the history.
+     */
+    public boolean undo() {
+        if (versions.size() < 2) return false;
+        rewind(versions.size() - 2);
+        return true;
+    }
+
+    /**
+     *
+     * @param Int - version
+     * @return Int - Number of the rows from the highest filled row down to the floor in the given version.
+     */
+    public int stackHeight(int version) {
+        Row top = versions.get(version).top;
+        return (top == null) ? 0 : top.height;
+    }
+
+    /**
+     * Copies a row of the given version to the given array.
+     * @param Int - version
+     * @param Int - row
+     * @param Char[] - destination with the column number of the map.
+     */
+    public void copyRow(int version, int row, char[] destination) {
+        Row r = versions.get(version).top;
+        while (r != null && rowNum - r.height < row) {
+            r = r.below;
+        }
+
+        if (r != null && rowNum - r.height == row) System.arraycopy(r.cells, 0, destination, 0, colNum);
+        else Arrays.fill(destination, 0, colNum, ' ');
+    }
+
+    /**
+     *
+     * @return Long - Number of the row objects created for all versions.
+     */
+    public long createdRowCount() { return createdRowNum; }
+
+    /**
+     *
+     * @return Long - Number of the row cell arrays created for all versions, the moved rows share them.
+     */
+    public long createdCellsCount() { return createdCellsNum; }
+
+    private class HistoryListener implements TetrisListener {
+
+        @Override
+        public void tetrominoLocked(AbstractTetris tetris, TetrominoType type, int startX, int startY, int rotation) {
+            pushVersion(lock(last().top, TetrominoShape.of(type, rotation), startX, startY));
+        }
+
+        @Override
+        public void linesCleared(AbstractTetris tetris, int[] rows, int count) {
+            /* The version of the lock is replaced, so a version is always a map without full rows. */
+            Row top = removeRows(last().top, rows, count);
+            versions.remove(versions.size() - 1);
+            pushVersion(top);
+        }
+    }
+
+    private Version last() { return versions.get(versions.size() - 1); }
+
+    private void pushVersion(Row top) {
+        long[] sourceState = null;
+        if (session != null) {
+            PieceSource source = session.getSource();
+            sourceState = new long[source.stateSize()];
+            source.saveState(sourceState, 0);
+        }
+        versions.add(new Version(top, tetris, sourceState));
+    }
+
+    /* New version with the given shape added, the rows from the top down to the lowest row of the shape are created again. */
+    private Row lock(Row top, TetrominoShape shape, int startX, int startY) {
+        int lowestRow = startX + shape.getActiveRowNum() - 1;
+        int topRow = (top == null) ? rowNum : rowNum - top.height;
+
+        /* Keep the rows which are created again, from the top down to the lowest row of the shape. */
+        int pathNum = 0;
+        Row below = top;
+        while (below != null && rowNum - below.height <= lowestRow) {
+            path[pathNum++] = below;
+            below = below.below;
+        }
+
+        /* Build the rows back up to the highest row of the stack or of the shape; the rows between the shape and the stack are empty. */
+        Row row = below;
+        int fromRow = Math.max(lowestRow, topRow - 1);
+        int highestRow = Math.min(topRow, startX);
+        for (int i = fromRow; i >= highestRow; --i) {
+            char[] cells = (i >= topRow) ? path[i - topRow].cells : null;
+            if (i >= startX && i <= lowestRow) {
+                char[] changed = (cells == null) ? emptyCells() : cells.clone();
+                for (int c = 0; c < shape.getActiveColNum(); ++c) {
+                    if (shape.isBlock(i - startX, c)) changed[startY + c] = shape.getSymbol();
+                }
+                if (changed != cells) ++createdCellsNum;
+                cells = changed;
+            }
+            else if (cells == null) {
+                cells = emptyCells();
+                ++createdCellsNum;
+            }
+            row = new Row(cells, row);
+            ++createdRowNum;
+        }
+
+        for (int i = 0; i < pathNum; ++i) path[i] = null;
+        return row;
+    }
+
+    /* New version without the given rows, the rows above the lowest removed one are created again and share their cells. */
+    private Row removeRows(Row top, int[] rows, int count) {
+        /* The rows are given from the bottom to the top. */
+        int lowestRow = rows[0];
+
+        int pathNum = 0;
+        Row below = top;
+        while (below != null && rowNum - below.height <= lowestRow) {
+            path[pathNum++] = below;
+            below = below.below;
+        }
+
+        Row row = below;
+        int removedIdx = 0;
+        for (int i = pathNum - 1; i >= 0; --i) {
+            int rowIdx = rowNum - path[i].height;
+            if (removedIdx < count && rows[removedIdx] == rowIdx) {
+                ++removedIdx;
+                continue;
+            }
+            row = new Row(path[i].cells, row);
+            ++createdRowNum;
+        }
+
+        for (int i = 0; i < pathNum; ++i) path[i] = null;
+        return row;
+    }
+
+    private char[] emptyCells() {
+        char[] cells = new char[colNum];
+        Arrays.fill(cells, ' ');
+        return cells;
+    }
+
+    private static boolean isEmpty(char[] cells) {
+        for (char cell : cells) {
+            if (cell != ' ') return false;
+        }
+        return true;
+    }
+
+}
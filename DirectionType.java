@@ -0,0 +1,3 @@
+enum DirectionType {
+    Left, Right
+}
@@ -0,0 +1,550 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+* <h1>EngineBenchmark Class</h1>
+* Command line benchmarks of the engine hot paths on a range of board sizes. <br>
+* Every case is warmed up, then measured in several timed iterations; the time and the allocated bytes per operation are reported.
+* Results can be saved as a baseline and later runs compared against it, a slower or more allocating case is reported as a regression.
+* <br><br>
+* A recorded replay can be given to benchmark playing the whole game back on every engine. <br>
+* Usage: java EngineBenchmark [-sizes 20x10,200x10] [-filter name] [-replay file] [-save file] [-baseline file] [-tolerance 0.10]
+*
+* @author Emre Oytun
+*/
+public class EngineBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 200_000_000L;
+
+    private static final String DEFAULT_SIZES = "20x10,40x10,200x20,1000x10";
+
+    /* Results are added here so the measured calls can't be removed as dead code. */
+    private static volatile long sink;
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * One benchmarked operation. Cases which change the board too much override prepare(), which runs untimed before every operation.
+     */
+    private abstract static class Case {
+        final String name;
+
+        Case(String name) {
+            this.name = name;
+        }
+
+        boolean needsPrepare() { return false; }
+
+        void prepare() {}
+
+        abstract long op();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String sizes = DEFAULT_SIZES;
+        String filter = null;
+        String saveFile = null;
+        String baselineFile = null;
+        String replayFile = null;
+        double tolerance = 0.10;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("-sizes")) sizes = args[i+1];
+            else if (args[i].equals("-filter")) filter = args[i+1];
+            else if (args[i].equals("-save")) saveFile = args[i+1];
+            else if (args[i].equals("-baseline")) baselineFile = args[i+1];
+            else if (args[i].equals("-replay")) replayFile = args[i+1];
+            else if (args[i].equals("-tolerance")) tolerance = Double.parseDouble(args[i+1]);
+            else throw new IllegalArgumentException("Unknown option: " + args[i]);
+        }
+
+        Map<String, double[]> baseline = (baselineFile != null) ? readResults(baselineFile) : null;
+        Map<String, double[]> results = new HashMap<>();
+        List<String> order = new ArrayList<>();
+        int regressionNum = 0;
+
+        List<String> sizeList = new ArrayList<>();
+        List<List<Case>> caseLists = new ArrayList<>();
+        for (String size : sizes.split(",")) {
+            String[] parts = size.split("x");
+            sizeList.add(size);
+            caseLists.add(createCases(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+        }
+        if (replayFile != null) {
+            try (ReplayPlayer player = new ReplayPlayer(Paths.get(replayFile))) {
+                sizeList.add(player.getRowNum() + "x" + player.getColNum());
+            }
+            caseLists.add(createReplayCases(Paths.get(replayFile)));
+        }
+
+        System.out.printf("%-44s %10s %12s %10s%n", "benchmark", "size", "ns/op", "B/op");
+        for (int s = 0; s < sizeList.size(); ++s) {
+            String size = sizeList.get(s);
+
+            for (Case c : caseLists.get(s)) {
+                if (filter != null && !c.name.contains(filter)) continue;
+
+                double[] result = measure(c);
+                String key = c.name + "\t" + size;
+                results.put(key, result);
+                order.add(key);
+
+                String note = "";
+                double[] base = (baseline != null) ? baseline.get(key) : null;
+                if (base != null) {
+                    if (result[0] > base[0] * (1 + tolerance) || result[1] > base[1] + 1) {
+                        note = String.format("  REGRESSION (baseline %.1f ns/op, %.1f B/op)", base[0], base[1]);
+                        ++regressionNum;
+                    }
+                }
+                System.out.printf("%-44s %10s %12.1f %10.1f%s%n", c.name, size, result[0], result[1], note);
+            }
+        }
+
+        if (saveFile != null) writeResults(saveFile, order, results);
+        if (regressionNum > 0) {
+            System.out.println(regressionNum + " regression(s) against " + baselineFile);
+            System.exit(1);
+        }
+    }
+
+    /* Returns {ns/op, bytes/op} of the given case. */
+    private static double[] measure(Case c) {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) runIteration(c);
+
+        double nanos = 0;
+        double bytes = 0;
+        for (int i = 0; i < MEASURE_ITERATIONS; ++i) {
+            double[] result = runIteration(c);
+            nanos += result[0];
+            bytes += result[1];
+        }
+        return new double[] {nanos / MEASURE_ITERATIONS, bytes / MEASURE_ITERATIONS};
+    }
+
+    private static double[] runIteration(Case c) {
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long sum = 0;
+
+        if (c.needsPrepare()) {
+            /* Only the operation itself is timed. */
+            long end = System.nanoTime() + ITERATION_NANOS;
+            while (System.nanoTime() < end) {
+                c.prepare();
+                long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                sum += c.op();
+                nanos += System.nanoTime() - start;
+                bytes += threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+                ++ops;
+            }
+        }
+        else {
+            /* Operations are timed in batches so the timer cost is not measured. */
+            int batch = 1024;
+            long startBytes = threadBean.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            long end = start + ITERATION_NANOS;
+            long now = start;
+            while (now < end) {
+                for (int i = 0; i < batch; ++i) sum += c.op();
+                ops += batch;
+                now = System.nanoTime();
+            }
+            nanos = now - start;
+            bytes = threadBean.getCurrentThreadAllocatedBytes() - startBytes;
+        }
+
+        sink += sum;
+        return new double[] {(double) nanos / ops, (double) bytes / ops};
+    }
+
+    private static List<Case> createCases(final int rowNum, final int colNum) {
+        List<Case> cases = new ArrayList<>();
+
+        for (final String engine : new String[] {"TetrisVector", "TetrisBitboard", "PackedTetris"}) {
+            if (!engine.equals("TetrisVector") && colNum > TetrisBitboard.MAX_COL_NUM) continue;
+
+            cases.add(new Case(engine + ".lowerTetromino") {
+                final AbstractTetris tetris = createEngine(engine, rowNum, colNum);
+                final Tetromino t = spawn(tetris, TetrominoType.T);
+
+                @Override
+                long op() {
+                    /* Move back to the top before the tetromino would be locked. */
+                    if (t.getStartX() + t.getActiveRowNum() >= rowNum) t.setStartX(0);
+                    tetris.lowerTetromino();
+                    return t.getStartX();
+                }
+            });
+
+            cases.add(new Case(engine + ".moveTetrominoLeft") {
+                final AbstractTetris tetris = createEngine(engine, rowNum, colNum);
+                final Tetromino t = spawn(tetris, TetrominoType.J);
+
+                @Override
+                long op() {
+                    /* Move back to the right side before the tetromino would hit the wall. */
+                    if (t.getStartY() == 0) t.setStartY(colNum - t.getActiveColNum());
+                    tetris.moveTetrominoLeft();
+                    return t.getStartY();
+                }
+            });
+
+            cases.add(new Case(engine + ".rotateTetromino") {
+                final AbstractTetris tetris = createEngine(engine, rowNum, colNum);
+                final Tetromino t = spawn(tetris, TetrominoType.L);
+
+                @Override
+                long op() {
+                    tetris.rotateTetromino();
+                    return t.getRotation();
+                }
+            });
+
+            cases.add(new Case(engine + ".canBeAdded") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                final Tetromino[] probes = createProbes(rowNum, colNum);
+                int idx = 0;
+
+                @Override
+                long op() {
+                    idx = (idx + 1) & (probes.length - 1);
+                    return tetris.canBeAdded(probes[idx]) ? 1 : 0;
+                }
+            });
+
+            for (int lines = 1; lines <= 4; ++lines) {
+                final int lineNum = lines;
+                cases.add(new Case(engine + ".checkLines(" + lineNum + ")") {
+                    AbstractTetris tetris = null;
+                    final int[] removedRows = new int[rowNum];
+
+                    @Override
+                    boolean needsPrepare() { return true; }
+
+                    @Override
+                    void prepare() {
+                        tetris = createEngine(engine, rowNum, colNum);
+                        fillLines(tetris, lineNum, false);
+                    }
+
+                    @Override
+                    long op() {
+                        return tetris.checkLines(removedRows);
+                    }
+                });
+
+                /* Drops an I tetromino in the well of the last column, so the column tops, features and hash are updated too. */
+                cases.add(new Case(engine + ".lock+clear(" + lineNum + ")") {
+                    final AbstractTetris tetris = createEngine(engine, rowNum, colNum);
+                    final GameSnapshot snapshot = new GameSnapshot(rowNum, colNum);
+                    final Tetromino t = new Tetromino(TetrominoType.I);
+                    {
+                        fillLines(tetris, lineNum, true);
+                        tetris.snapshot(snapshot);
+                        t.setRotation(1);
+                    }
+
+                    @Override
+                    boolean needsPrepare() { return true; }
+
+                    @Override
+                    void prepare() {
+                        tetris.restore(snapshot);
+                        tetris.add(t);
+                        t.setStartY(colNum - 1);
+                    }
+
+                    @Override
+                    long op() {
+                        tetris.hardDrop();
+                        return tetris.numberOfClearedLines();
+                    }
+                });
+            }
+
+            cases.add(new Case(engine + ".getMap") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+
+                @Override
+                long op() {
+                    return tetris.getMap().length;
+                }
+            });
+
+            cases.add(new Case(engine + ".checkHorizantalMovement") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                final Tetromino t = new Tetromino(TetrominoType.S, 0, colNum / 2 - 1);
+                int target = 0;
+
+                @Override
+                long op() {
+                    target = (target + 1) % (colNum - t.getActiveColNum() + 1);
+                    return tetris.checkHorizantalMovement(t, target) ? 1 : 0;
+                }
+            });
+
+            cases.add(new Case(engine + ".ghostRow") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                final Tetromino t = spawn(tetris, TetrominoType.J);
+
+                @Override
+                long op() {
+                    return tetris.ghostRow();
+                }
+            });
+
+            cases.add(new Case(engine + ".features") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                final BoardFeatures features = tetris.features();
+
+                @Override
+                long op() {
+                    return features.aggregateHeight() + features.holeCount() + features.bumpiness() + features.wellDepthSum()
+                            + features.rowTransitions() + features.columnTransitions();
+                }
+            });
+
+            cases.add(new Case(engine + ".snapshot") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                final GameSnapshot snapshot = new GameSnapshot(rowNum, colNum);
+
+                @Override
+                long op() {
+                    tetris.snapshot(snapshot);
+                    return snapshot.byteSize();
+                }
+            });
+
+            cases.add(new Case(engine + ".restore") {
+                final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                final GameSnapshot snapshot = new GameSnapshot(rowNum, colNum);
+                {
+                    tetris.snapshot(snapshot);
+                }
+
+                @Override
+                long op() {
+                    tetris.restore(snapshot);
+                    return tetris.stateVersion();
+                }
+            });
+
+            if (colNum <= Long.SIZE) {
+                cases.add(new Case(engine + ".PlacementSearch.search") {
+                    final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                    final PlacementSearch search = new PlacementSearch(rowNum, colNum);
+                    final Tetromino t = new Tetromino(TetrominoType.T, 0, colNum / 2 - 1);
+
+                    @Override
+                    long op() {
+                        return search.search(tetris, t);
+                    }
+                });
+
+                cases.add(new Case(engine + ".AutoPlayer.choose(lookahead)") {
+                    final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                    final AutoPlayer player = new AutoPlayer(rowNum, colNum, true, ForkJoinPool.commonPool(), 0);
+                    final Tetromino t = new Tetromino(TetrominoType.T, 0, colNum / 2 - 1);
+
+                    @Override
+                    long op() {
+                        return player.choose(tetris, t, TetrominoType.S);
+                    }
+                });
+
+                /* The same position every time, so every look ahead after the first one is found in the cache. */
+                cases.add(new Case(engine + ".AutoPlayer.choose(cached)") {
+                    final AbstractTetris tetris = createRandomBoard(engine, rowNum, colNum);
+                    final AutoPlayer player = new AutoPlayer(rowNum, colNum, true, ForkJoinPool.commonPool(), AutoPlayer.CACHE_SIZE);
+                    final Tetromino t = new Tetromino(TetrominoType.T, 0, colNum / 2 - 1);
+
+                    @Override
+                    long op() {
+                        return player.choose(tetris, t, TetrominoType.S);
+                    }
+                });
+            }
+        }
+
+        if (colNum <= TetrisBitboard.MAX_COL_NUM) {
+            /* Moves between the games of a store, every slot has a random board. */
+            cases.add(new Case("PackedTetris.select") {
+                final PackedTetris tetris = new PackedTetris(new PackedBoardStore(1024, rowNum, colNum, 0));
+                int slot = 0;
+                {
+                    GameSnapshot snapshot = new GameSnapshot(rowNum, colNum);
+                    createRandomBoard("TetrisBitboard", rowNum, colNum).snapshot(snapshot);
+                    for (int i = 0; i < tetris.getStore().slotCount(); ++i) {
+                        tetris.select(i);
+                        tetris.restore(snapshot);
+                    }
+                }
+
+                @Override
+                long op() {
+                    slot = (slot + 1) & (tetris.getStore().slotCount() - 1);
+                    tetris.select(slot);
+                    return tetris.numberOfLockedTetrominos();
+                }
+            });
+        }
+
+        cases.add(new Case("Tetromino.rotate") {
+            final Tetromino t = new Tetromino(TetrominoType.T);
+
+            @Override
+            long op() {
+                t.rotate(DirectionType.Right);
+                return t.getActiveRowNum();
+            }
+        });
+
+        cases.add(new Case("Tetromino.clone") {
+            final Tetromino t = new Tetromino(TetrominoType.Z);
+
+            @Override
+            long op() {
+                return ((Tetromino) t.clone()).getStartY();
+            }
+        });
+
+        return cases;
+    }
+
+    /* Plays the whole replay on every engine in one operation, opening the replay is not timed. */
+    private static List<Case> createReplayCases(final Path path) {
+        List<Case> cases = new ArrayList<>();
+
+        for (final String engine : new String[] {"TetrisVector", "TetrisBitboard", "PackedTetris"}) {
+            cases.add(new Case(engine + ".replay(" + path.getFileName() + ")") {
+                ReplayPlayer player = null;
+                AbstractTetris tetris = null;
+
+                @Override
+                boolean needsPrepare() { return true; }
+
+                @Override
+                void prepare() {
+                    try {
+                        player = new ReplayPlayer(path);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    tetris = createEngine(engine, player.getRowNum(), player.getColNum());
+                }
+
+                @Override
+                long op() {
+                    try (ReplayPlayer p = player) {
+                        return p.play(tetris).piecesPlaced();
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        }
+        return cases;
+    }
+
+    private static AbstractTetris createEngine(String engine, int rowNum, int colNum) {
+        if (engine.equals("TetrisBitboard")) return new TetrisBitboard(rowNum, colNum);
+        if (engine.equals("PackedTetris")) return new PackedTetris(new PackedBoardStore(1, rowNum, colNum, 0));
+        return new TetrisVector(rowNum, colNum);
+    }
+
+    /* Adds a tetromino of the given type to the top middle of the map. */
+    private static Tetromino spawn(AbstractTetris tetris, TetrominoType type) {
+        Tetromino t = new Tetromino(type);
+        tetris.add(t);
+        return t;
+    }
+
+    /* Plays random inputs with a fixed seed until about a third of the map is filled. */
+    private static AbstractTetris createRandomBoard(String engine, int rowNum, int colNum) {
+        AbstractTetris tetris = createEngine(engine, rowNum, colNum);
+        GameSession session = new GameSession(tetris, new UniformPieceSource(rowNum * 31 + colNum));
+        Random random = new Random(colNum * 31 + rowNum);
+        InputType[] inputs = { InputType.Left, InputType.Right, InputType.Rotate, InputType.Lower };
+
+        int pieceNum = rowNum * colNum / 12;
+        while (!session.isOver() && session.piecesPlaced() < pieceNum) {
+            session.apply(inputs[random.nextInt(inputs.length)]);
+        }
+        return tetris;
+    }
+
+    /* Tetrominos at random positions inside the map, the number of them is a power of two. */
+    private static Tetromino[] createProbes(int rowNum, int colNum) {
+        Random random = new Random(rowNum + colNum);
+        TetrominoType[] types = TetrominoType.values();
+        Tetromino[] probes = new Tetromino[256];
+        for (int i = 0; i < probes.length; ++i) {
+            Tetromino t = new Tetromino(types[random.nextInt(types.length)]);
+            t.setRotation(random.nextInt(4));
+            t.setStartPosition(random.nextInt(rowNum - t.getActiveRowNum() + 1), random.nextInt(colNum - t.getActiveColNum() + 1));
+            probes[i] = t;
+        }
+        return probes;
+    }
+
+    /*
+     * Fills the bottom 4 rows with vertical I tetrominos in every column, the one in the first column is raised so only the given number of lines are full.
+     * If a well is left, the last column is empty and the lines are full after an I tetromino is dropped into it.
+     */
+    private static void fillLines(AbstractTetris tetris, int lineNum, boolean leaveWell) {
+        Tetromino t = new Tetromino(TetrominoType.I);
+        t.setRotation(1);
+        int colNum = leaveWell ? tetris.colNum - 1 : tetris.colNum;
+        for (int col = 0; col < colNum; ++col) {
+            int raise = (col == 0) ? 4 - lineNum : 0;
+            t.setStartPosition(tetris.rowNum - 4 - raise, col);
+            tetris.addTetromino(t);
+        }
+    }
+
+    private static Map<String, double[]> readResults(String fileName) throws IOException {
+        Map<String, double[]> results = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length == 4) {
+                    results.put(parts[0] + "\t" + parts[1], new double[] {Double.parseDouble(parts[2]), Double.parseDouble(parts[3])});
+                }
+            }
+        }
+        return results;
+    }
+
+    private static void writeResults(String fileName, List<String> order, Map<String, double[]> results) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            for (String key : order) {
+                double[] result = results.get(key);
+                writer.println(key + "\t" + result[0] + "\t" + result[1]);
+            }
+        }
+    }
+
+}
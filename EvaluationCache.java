@@ -0,0 +1,135 @@
+
+/**
+* <h1>EvaluationCache Class</h1>
+* A bounded map from 64 bit hashes to scores, for searches which reach the same positions more than once. <br>
+* The entries are kept in sets of 4 ways in plain arrays, so a lookup reads one cache line of keys and nothing is allocated.
+* When a set is full, an entry is evicted with the clock algorithm: every hit marks its entry as used, and the hand of the set
+* moves over the ways, clearing the marks, until it finds an entry which wasn't used since the hand passed it the last time. <br>
+* It isn't thread safe, every searching thread should have its own cache.
+*
+* @author Emre Oytun
+*/
+public class EvaluationCache {
+
+    private static final int WAY_NUM = 4;
+
+    /* Hash 0 marks an empty entry, so a 0 hash is stored as this one. */
+    private static final long ZERO_HASH = 0x9e3779b97f4a7c15L;
+
+    private final int setMask;
+    private final long[] keys;
+    private final double[] values;
+    private final boolean[] used;
+    private final byte[] hands;
+
+    private long hitNum = 0;
+    private long missNum = 0;
+
+    /**
+     * Constructs the cache with at least the given number of entries, rounded up to a power of two.
+     * @param Int - capacity
+     * @throws IllegalArgumentException - When the capacity isn't positive or is too large.
+     */
+    public EvaluationCache(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity: " + capacity + " is invalid for the cache.");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        int setNum = Math.max(1, size / WAY_NUM);
+        setMask = setNum - 1;
+
+        keys = new long[setNum * WAY_NUM];
+        values = new double[setNum * WAY_NUM];
+        used = new boolean[setNum * WAY_NUM];
+        hands = new byte[setNum];
+    }
+
+    /**
+     * Finds the score of the given hash.
+     * @param Long - hash
+     * @return Double - Cached score, NaN if the hash isn't in the cache.
+     */
+    public double get(long hash) {
+        long key = (hash == 0) ? ZERO_HASH : hash;
+        int base = setOf(key) * WAY_NUM;
+        for (int w = 0; w < WAY_NUM; ++w) {
+            if (keys[base + w] == key) {
+                used[base + w] = true;
+                ++hitNum;
+                return values[base + w];
+            }
+        }
+        ++missNum;
+        return Double.NaN;
+    }
+
+    /**
+     * Adds the score of the given hash, evicting an entry of its set if it's full.
+     * @param Long - hash
+     * @param Double - value
+     */
+    public void put(long hash, double value) {
+        long key = (hash == 0) ? ZERO_HASH : hash;
+        int set = setOf(key);
+        int base = set * WAY_NUM;
+
+        int way = -1;
+        for (int w = 0; w < WAY_NUM && way < 0; ++w) {
+            if (keys[base + w] == key || keys[base + w] == 0) way = w;
+        }
+
+        if (way < 0) {
+            /* The clock hand passes at most once over every way before it finds an unused one. */
+            int hand = hands[set];
+            while (used[base + hand]) {
+                used[base + hand] = false;
+                hand = (hand + 1) & (WAY_NUM - 1);
+            }
+            way = hand;
+            hands[set] = (byte) ((hand + 1) & (WAY_NUM - 1));
+        }
+
+        keys[base + way] = key;
+        values[base + way] = value;
+        used[base + way] = false;
+    }
+
+    /**
+     * Removes every entry, the hit and miss counts are kept.
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = 0;
+            used[i] = false;
+        }
+        for (int i = 0; i < hands.length; ++i) {
+            hands[i] = 0;
+        }
+    }
+
+    /**
+     *
+     * @return Int - Number of entries the cache can keep.
+     */
+    public int capacity() { return keys.length; }
+
+    /**
+     *
+     * @return Long - Number of lookups which found their hash.
+     */
+    public long hitCount() { return hitNum; }
+
+    /**
+     *
+     * @return Long - Number of lookups which didn't find their hash.
+     */
+    public long missCount() { return missNum; }
+
+    /* The high bits pick the set, they are mixed best by the hashes built from random keys. */
+    private int setOf(long key) {
+        return (int) (key >>> 32) & setMask;
+    }
+
+}
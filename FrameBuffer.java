@@ -0,0 +1,69 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+* <h1>FrameBuffer Class</h1>
+* Triple buffer of reusable frames between the game and the renderer. <br>
+* The game fills the back frame and publishes it, the renderer borrows the latest published frame.
+* Neither side waits for the other and no frame is allocated after the construction.
+*
+* @author Emre Oytun
+*/
+public class FrameBuffer {
+
+    /* Set on the ready index when it holds a frame which isn't borrowed yet. */
+    private static final int FRESH = 4;
+    private static final int INDEX_MASK = 3;
+
+    private final BoardFrame[] frames = new BoardFrame[3];
+    private final AtomicInteger ready = new AtomicInteger(2);
+
+    /* Only used by the publishing side. */
+    private int writeIdx = 0;
+    private long publishedVersion = -1;
+
+    /* Only used by the renderer side. */
+    private int readIdx = 1;
+
+    /**
+     * Constructs the buffer with empty frames of the given sizes.
+     * @param rowNum
+     * @param colNum
+     */
+    public FrameBuffer(int rowNum, int colNum) {
+        for (int i = 0; i < frames.length; ++i) {
+            frames[i] = new BoardFrame(rowNum, colNum);
+        }
+    }
+
+    /**
+     * 
+     * @return BoardFrame - Frame to be filled by the publishing side.
+     */
+    public BoardFrame backFrame() { return frames[writeIdx]; }
+
+    /**
+     * 
+     * @return Long - Version of the last published frame, -1 if nothing is published yet.
+     */
+    public long publishedVersion() { return publishedVersion; }
+
+    /**
+     * Publishes the back frame, the renderer will get it on its next borrow.
+     */
+    public void publish() {
+        publishedVersion = frames[writeIdx].getVersion();
+        writeIdx = ready.getAndSet(writeIdx | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Borrows the latest published frame, it stays valid until the next borrow.
+     * @return BoardFrame - Latest published frame.
+     */
+    public BoardFrame borrow() {
+        if ((ready.get() & FRESH) != 0) {
+            readIdx = ready.getAndSet(readIdx) & INDEX_MASK;
+        }
+        return frames[readIdx];
+    }
+
+}
@@ -1,15 +1,15 @@
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.awt.Graphics2D;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.Random;
+import java.awt.image.BufferedImage;
 
 import javax.swing.JDialog;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 
 public class GameArea extends JPanel implements KeyListener {
 
@@ -20,20 +20,23 @@ public class GameArea extends JPanel implements KeyListener {
     public static final int BLOCK_SIZE = 20;
     
 
-    private static final int FPS = 60;
-    private static final int delay = 1000 / FPS;
-    private static final int normalGameTime = 300;
-    private static final int fastGameTime = 50;
+    /* Rendering layers: the grid never changes, the locked blocks change only when a tetromino is locked. */
+    private static final BufferedImage[] sprites = createSprites();
+    private static final BufferedImage[] ghostSprites = createGhostSprites();
 
-    private int delayTime = normalGameTime;
-    private long startTime = 0;
-    private Timer looper = null;
-    
-    private AbstractTetris tetris = null;
-    
-    private int deltaX = 0;
-    private boolean rotate = false;
-    private boolean paused = false;
+    /* Sprites of the block characters, so a locked block is drawn without searching its type. */
+    private static final BufferedImage[] symbolSprites = createSymbolSprites();
+    private final BufferedImage gridImage;
+    private final BufferedImage stackImage;
+    private long stackLockVersion = Long.MIN_VALUE;
+
+    /* The game runs on its own thread, the game area only queues the keys and paints the published frames. */
+    private final GameLoop loop;
+    private final FrameBuffer frames;
+    private final Thread loopThread;
+
+    /* Longest wait for the loop to save the recording when the game is closed. */
+    private static final long SHUTDOWN_MILLIS = 2000;
 
     /**
      * Constructs the game area with the given parameters.
@@ -52,174 +55,212 @@ public class GameArea extends JPanel implements KeyListener {
         setBounds(0, 0, GAMEAREA_WIDTH, GAMEAREA_HEIGHT);
         setLayout(null);
 
-        tetris = new TetrisVector(ROW_NUM, COL_NUM);
+        gridImage = createGridImage();
+        stackImage = new BufferedImage(GAMEAREA_WIDTH, GAMEAREA_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        loop = new GameLoop(ROW_NUM, COL_NUM, new Repainter());
+        frames = loop.getFrames();
 
-        looper = new Timer(delay, new MainLoopListener());
-        looper.start();
+        loopThread = new Thread(loop, "tetris-game-loop");
+        loopThread.setDaemon(true);
+        loopThread.start();
     }
 
-    private class MainLoopListener implements ActionListener {
+    /* Repaint requests come from the loop thread, repaint() only queues them for the event dispatch thread. */
+    private class Repainter implements GameLoop.Renderer {
 
         @Override
-        public void actionPerformed(ActionEvent e) {
-           
-            /* If time passed since the last time tetromine lowered is greater than delayTime, then check for horizantal movement 
-             * and lower tetromino.
-             */
-            if (paused == false && tetris.gameStatus() == true) {    
-                
-                if (System.currentTimeMillis() - startTime > delayTime) {
-                    startTime = System.currentTimeMillis();
-
-                    if (tetris.currentTetrominoStatus()) {
-                        if (rotate == true) {
-                            tetris.rotateTetromino();
-                            rotate = false;
-                        }
-
-                        /* Move tetromino horizantally. */
-                        int moveCount = Math.abs(deltaX);
-                        for (int i = 0; i < moveCount; ++i) {
-                            if (deltaX < 0) tetris.moveTetrominoLeft();
-                            else tetris.moveTetrominoRight();
-                        }
-                        deltaX = 0;
-
-                        /* Move tetromino vertically. */
-                        tetris.lowerTetromino();
-                    }
-                    else {
-                        tetris.add(randomTet()); 
-                    }    
-                    
-                }
-
-                /* Else only check for horizantal movement */
-                else {
-                    if (tetris.currentTetrominoStatus()) {
-                        if (rotate == true) {
-                            tetris.rotateTetromino();
-                            rotate = false;
-                        }
-
-                        /* Move tetromino horizantally. */
-                        int moveCount = Math.abs(deltaX);
-                        for (int i = 0; i < moveCount; ++i) {
-                            if (deltaX < 0) tetris.moveTetrominoLeft();
-                            else tetris.moveTetrominoRight();
-                        }
-                        deltaX = 0;
-
-                    }
-                    else {
-                        tetris.add(randomTet()); 
-                    } 
-                }
-                  
-                /* Render */
-                repaint();
-            }
+        public void repaintRows(int fromRow, int toRow) {
+            repaint(0, fromRow*BLOCK_SIZE, GAMEAREA_WIDTH, (toRow-fromRow)*BLOCK_SIZE);
+        }
+
+        @Override
+        public void repaintAll() {
+            repaint();
+        }
+
+        @Override
+        public void gameOver() {
+            SwingUtilities.invokeLater(GameArea.this::showGameOver);
+        }
+    }
+
+    /**
+     * 
+     * @return Long - Average time from a key press until it's applied to the game, in nanoseconds.
+     */
+    public long averageInputLatency() { return loop.averageInputLatency(); }
+
+    /**
+     * 
+     * @return Long - Longest time from a key press until it's applied to the game, in nanoseconds.
+     */
+    public long maxInputLatency() { return loop.maxInputLatency(); }
+
+    /**
+     * Stops the game loop and waits until the recording of the game is saved.
+     */
+    public void shutdown() {
+        loopThread.interrupt();
+        try {
+            loopThread.join(SHUTDOWN_MILLIS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
     public void stopGame() {
-        paused = true;
+        loop.setPaused(true);
     }
 
     public void startGame() {
-        paused = false;
+        loop.setPaused(false);
     }
 
     public void restartGame() {
-        tetris = new TetrisVector(ROW_NUM, COL_NUM);
+        loop.restart();
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
+        BoardFrame frame = frames.borrow();
+
+        /* Locked blocks are only drawn again when a tetromino was locked. */
+        if (frame.getLockVersion() != stackLockVersion) {
+            renderStack(frame);
+            stackLockVersion = frame.getLockVersion();
+        }
+
+        g.drawImage(gridImage, 0, 0, null);
+        g.drawImage(stackImage, 0, 0, null);
+
+        /* Paint the ghost and then the current tetromino over the layers. */
+        if (frame.isTetrominoActive()) {
+            TetrominoShape shape = frame.getShape();
+            BufferedImage ghostSprite = ghostSprites[shape.getType().ordinal()];
+            for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+                int i = frame.getGhostX() + shape.getCellRow(k);
+                int j = frame.getStartY() + shape.getCellCol(k);
+                g.drawImage(ghostSprite, j*BLOCK_SIZE, i*BLOCK_SIZE, null);
+            }
+
+            BufferedImage sprite = sprites[shape.getType().ordinal()];
+            for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+                int i = frame.getStartX() + shape.getCellRow(k);
+                int j = frame.getStartY() + shape.getCellCol(k);
+                g.drawImage(sprite, j*BLOCK_SIZE, i*BLOCK_SIZE, null);
+            }
+        }
+    }
+
+    /* Shows the game over dialog, it's called once for every game on the event dispatch thread. */
+    private void showGameOver() {
+        JOptionPane optionPane = new JOptionPane();
+        JDialog dialog = optionPane.createDialog(null, "Game Over");
+        dialog.setModal(false);
+        optionPane.setMessage("Game Over");
+
+        dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
+        dialog.setVisible(true);
+    }
+
+    /* Draws the locked blocks of the given frame to the stack image. */
+    private void renderStack(BoardFrame frame) {
+        Graphics2D g = stackImage.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, GAMEAREA_WIDTH, GAMEAREA_HEIGHT);
+        g.setComposite(AlphaComposite.SrcOver);
+
+        for (int i = 0; i < frame.getRowNum(); ++i) {
+            for (int j = 0; j < frame.getColNum(); ++j) {
+                BufferedImage sprite = spriteOf(frame.getLocked(i, j));
+                if (sprite != null) g.drawImage(sprite, j*BLOCK_SIZE, i*BLOCK_SIZE, null);
+            }
+        }
+        g.dispose();
+    }
+
+    /* Returns the sprite of the given block, null if it's empty. */
+    private static BufferedImage spriteOf(char block) {
+        return (block < symbolSprites.length) ? symbolSprites[block] : null;
+    }
+
+    /* Creates the black background with white lines. */
+    private BufferedImage createGridImage() {
+        BufferedImage image = new BufferedImage(GAMEAREA_WIDTH, GAMEAREA_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+
         /* Paint the area to the black. */
         g.setColor(Color.black);
-        g.fillRect(0, 0, getWidth(), getHeight());
+        g.fillRect(0, 0, GAMEAREA_WIDTH, GAMEAREA_HEIGHT);
 
         /* Paint lines with white. */
         g.setColor(Color.white);
         for (int row = 0; row < ROW_NUM + 1; ++row) {
-            g.drawLine(0, BLOCK_SIZE*row, BLOCK_SIZE*COL_NUM,BLOCK_SIZE*row);
+            g.drawLine(0, BLOCK_SIZE*row, BLOCK_SIZE*COL_NUM, BLOCK_SIZE*row);
         }
 
         for (int col = 0; col < COL_NUM + 1; ++col) {
-            g.drawLine(col*BLOCK_SIZE, 0, col*ROW_NUM, BLOCK_SIZE*ROW_NUM);
+            g.drawLine(col*BLOCK_SIZE, 0, col*BLOCK_SIZE, BLOCK_SIZE*ROW_NUM);
         }
-        
-        char[][] map = tetris.getMap();
-        for (int i = 0; i < map.length; ++i) {
-            for (int j = 0; j < map[i].length; ++j) {
-                
-                /* Set colors according to the blocks type.. */
-                if (map[i][j] == 'L') {
-                    g.setColor(Color.red);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
-            
-                else if (map[i][j] == 'I') {
-                    g.setColor(Color.blue);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
-            
-                else if (map[i][j] == 'Z') {
-                    g.setColor(Color.pink);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
-
-                else if (map[i][j] == 'S') {
-                    g.setColor(Color.orange);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
-
-                else if (map[i][j] == 'T') {
-                    g.setColor(Color.GREEN);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
-
-                else if (map[i][j] == 'O') {
-                    g.setColor(Color.WHITE);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
-
-                else if (map[i][j] == 'J') {
-                    g.setColor(Color.MAGENTA);
-                    g.fillRect(j*BLOCK_SIZE, i*BLOCK_SIZE, BLOCK_SIZE-2, BLOCK_SIZE-2);
-                }
 
-            }
+        g.dispose();
+        return image;
+    }
+
+    /* Creates one block image for every tetromino type. */
+    private static BufferedImage[] createSprites() {
+        TetrominoType[] types = TetrominoType.values();
+        BufferedImage[] images = new BufferedImage[types.length];
+        for (TetrominoType type : types) {
+            BufferedImage image = new BufferedImage(BLOCK_SIZE-2, BLOCK_SIZE-2, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(colorOf(type));
+            g.fillRect(0, 0, BLOCK_SIZE-2, BLOCK_SIZE-2);
+            g.dispose();
+            images[type.ordinal()] = image;
         }
-    
-        if (tetris.gameStatus() == false) {
-            JOptionPane optionPane = new JOptionPane();
-            JDialog dialog = optionPane.createDialog(null, "Game Over");
-            dialog.setModal(false);
-            optionPane.setMessage("Game Over");
-            
-            dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
-            dialog.setVisible(true);
+        return images;
+    }
+
+    /* Maps the block character of every tetromino type to its sprite. */
+    private static BufferedImage[] createSymbolSprites() {
+        BufferedImage[] images = new BufferedImage[128];
+        for (TetrominoType type : TetrominoType.values()) {
+            images[TetrominoShape.of(type, 0).getSymbol()] = sprites[type.ordinal()];
         }
+        return images;
     }
 
-    private static Tetromino randomTet() {
-        Random randomGenerator = new Random();
-        int randomNum = randomGenerator.nextInt(7) + 1;
-        
-        if (randomNum == 1) return new Tetromino(TetrominoType.I);
-        if (randomNum == 2) return new Tetromino(TetrominoType.O);
-        if (randomNum == 3) return new Tetromino(TetrominoType.T);
-        if (randomNum == 4) return new Tetromino(TetrominoType.L);
-        if (randomNum == 5) return new Tetromino(TetrominoType.J);
-        if (randomNum == 6) return new Tetromino(TetrominoType.S);
-        if (randomNum == 7) return new Tetromino(TetrominoType.Z);
-        
-        return new Tetromino(TetrominoType.I);
+    /* Creates one outlined block image for every tetromino type, to show where the tetromino would land. */
+    private static BufferedImage[] createGhostSprites() {
+        TetrominoType[] types = TetrominoType.values();
+        BufferedImage[] images = new BufferedImage[types.length];
+        for (TetrominoType type : types) {
+            BufferedImage image = new BufferedImage(BLOCK_SIZE-2, BLOCK_SIZE-2, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = image.createGraphics();
+            g.setColor(colorOf(type));
+            g.drawRect(1, 1, BLOCK_SIZE-5, BLOCK_SIZE-5);
+            g.dispose();
+            images[type.ordinal()] = image;
+        }
+        return images;
+    }
 
+    /* Colors of the blocks according to their type. */
+    private static Color colorOf(TetrominoType type) {
+        switch (type) {
+            case L: return Color.red;
+            case I: return Color.blue;
+            case Z: return Color.pink;
+            case S: return Color.orange;
+            case T: return Color.GREEN;
+            case O: return Color.WHITE;
+            default: return Color.MAGENTA;
+        }
     }
 
     @Override
@@ -231,19 +272,27 @@ public class GameArea extends JPanel implements KeyListener {
     public void keyPressed(KeyEvent e) {
         
         if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-            delayTime = fastGameTime;
+            loop.setSoftDrop(true);
         }
 
         else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
-            deltaX = 1;
+            loop.press(InputType.Right);
         }
 
         else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
-            deltaX = -1;
+            loop.press(InputType.Left);
         }
 
         else if (e.getKeyCode() == KeyEvent.VK_UP) {
-            rotate = true;
+            loop.press(InputType.Rotate);
+        }
+
+        else if (e.getKeyCode() == KeyEvent.VK_SPACE) {
+            loop.press(InputType.HardDrop);
+        }
+
+        else if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+            loop.rewind();
         }
         
     }
@@ -252,7 +301,15 @@ public class GameArea extends JPanel implements KeyListener {
     public void keyReleased(KeyEvent e) {
         
         if (e.getKeyCode() == KeyEvent.VK_DOWN) {
-            delayTime = normalGameTime;
+            loop.setSoftDrop(false);
+        }
+
+        else if (e.getKeyCode() == KeyEvent.VK_RIGHT) {
+            loop.release(InputType.Right);
+        }
+
+        else if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+            loop.release(InputType.Left);
         }
 
     }
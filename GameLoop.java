@@ -0,0 +1,372 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+* <h1>GameLoop Class</h1>
+* Runs a game on its own thread with a fixed time step, apart from the thread which renders it. <br>
+* Every step applies the queued inputs, the auto shift and the gravity with the simulated time of the step, so a slow paint
+* doesn't delay the game and the gravity doesn't drift. Frames are published through a lock-free FrameBuffer, so neither the game
+* nor the renderer waits for the other. The other threads only queue inputs and set volatile flags.
+*
+* @author Emre Oytun
+*/
+public class GameLoop implements Runnable {
+
+    /**
+     * Receives the repaint requests of the loop, it's called on the loop thread.
+     */
+    public interface Renderer {
+        /**
+         * The given rows changed in the last published frame.
+         * @param Int - fromRow
+         * @param Int - toRow, the row after the last changed row.
+         */
+        void repaintRows(int fromRow, int toRow);
+
+        /**
+         * Everything changed in the last published frame.
+         */
+        void repaintAll();
+
+        /**
+         * The game is over, it's called once for every game.
+         */
+        void gameOver();
+    }
+
+    private static final long STEP_NANOS = 1_000_000_000L / 60;
+
+    /* Steps run at most in one wake up, the time after them is dropped after a long stall. */
+    private static final int MAX_STEPS = 5;
+
+    private static final long normalGameTime = 300_000_000L;
+    private static final long fastGameTime = 50_000_000L;
+    private static final int previewSize = 5;
+
+    /* Delayed auto shift and auto repeat rate of the held arrow keys, they can be given with -Dtetris.das=... and -Dtetris.arr=... */
+    private static final long dasTime = Long.getLong("tetris.das", 170);
+    private static final long arrTime = Long.getLong("tetris.arr", 50);
+
+    /* Games are recorded to this directory when it's given with -Dtetris.replayDir=... */
+    private static final String replayDir = System.getProperty("tetris.replayDir");
+
+    /* The game plays itself and ignores the keys when it's started with -Dtetris.autoPlay=true. */
+    private static final boolean autoPlay = Boolean.getBoolean("tetris.autoPlay");
+
+    /* Locked tetrominos can be taken back when the game is started with -Dtetris.practice=true. */
+    private static final boolean practice = Boolean.getBoolean("tetris.practice");
+
+    private final int rowNum;
+    private final int colNum;
+    private final Renderer renderer;
+
+    /* Shared with the renderer and the input threads. */
+    private final FrameBuffer frames;
+    private final InputQueue inputs = new InputQueue(256);
+    private volatile boolean paused = false;
+    private volatile boolean restartRequested = false;
+    private volatile boolean rewindRequested = false;
+    private volatile boolean softDrop = false;
+    private volatile long inputLatencySum = 0;
+    private volatile long inputLatencyMax = 0;
+    private volatile long inputNum = 0;
+
+    /* Only used by the loop thread. */
+    private final AbstractTetris tetris;
+    private GameSession session = null;
+    private BoardHistory history = null;
+    private final AutoShift autoShift = new AutoShift(dasTime * 1_000_000, arrTime * 1_000_000);
+    private final AutoPlayer autoPlayer;
+    private final InputQueue.Handler inputHandler = new InputHandler();
+    private final BitSet dirtyRows = new BitSet();
+    private long stepTime = 0;
+    private long gravityTime = 0;
+
+    /* Set by the game over event, the renderer is told about it with the next published frame. */
+    private boolean gameOverPending = false;
+
+    /* Thread running the loop, it's parked while the game is paused or over. */
+    private volatile Thread loopThread = null;
+
+    /**
+     * Constructs the loop with a new game of the given sizes, the game starts when the loop is run.
+     * @param Int - rowNum
+     * @param Int - colNum
+     * @param Renderer - renderer to be told about the changes.
+     */
+    public GameLoop(int rowNum, int colNum, Renderer renderer) {
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+        this.renderer = renderer;
+
+        tetris = new TetrisVector(rowNum, colNum);
+        autoPlayer = autoPlay ? new AutoPlayer(rowNum, colNum, true) : null;
+        tetris.addListener(new GameOverListener());
+        frames = new FrameBuffer(rowNum, colNum);
+        createSession();
+        tetris.publishFrame(frames);
+    }
+
+    /**
+     * Runs the game until the thread is interrupted.
+     */
+    @Override
+    public void run() {
+        loopThread = Thread.currentThread();
+        stepTime = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+
+            /* Run the steps which are due; after a long stall only the last few of them. */
+            if (now - stepTime > MAX_STEPS * STEP_NANOS) {
+                stepTime = now - MAX_STEPS * STEP_NANOS;
+            }
+            while (stepTime + STEP_NANOS <= now) {
+                stepTime += STEP_NANOS;
+                step();
+            }
+            publish();
+
+            /* Nothing changes while the game is stopped, so the loop sleeps until it's resumed or restarted. */
+            if (isIdle()) {
+                while (isIdle() && !Thread.currentThread().isInterrupted()) LockSupport.park(this);
+
+                /* Keys pressed while the game is stopped are not applied later. */
+                inputs.clear();
+                autoShift.reset();
+                stepTime = System.nanoTime();
+                continue;
+            }
+
+            LockSupport.parkNanos(stepTime + STEP_NANOS - System.nanoTime());
+        }
+
+        /* An interrupted thread can't write to a FileChannel, so the flag is cleared until the recording is saved. */
+        Thread.interrupted();
+        stopRecording();
+        Thread.currentThread().interrupt();
+    }
+
+    private boolean isIdle() {
+        return !restartRequested && !rewindRequested && (paused || !tetris.gameStatus());
+    }
+
+    /* Wakes the loop thread up if it's parked while idle. */
+    private void wakeUp() {
+        Thread thread = loopThread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /* One fixed time step of the game at stepTime. */
+    private void step() {
+        if (restartRequested) {
+            restartRequested = false;
+            stopRecording();
+            tetris.reset();
+            createSession();
+        }
+
+        if (rewindRequested) {
+            rewindRequested = false;
+            if (!paused && history != null && history.undo()) {
+                /* The rewound game isn't the recorded one any more. */
+                stopRecording();
+                gravityTime = 0;
+            }
+        }
+
+        if (paused || !tetris.gameStatus()) {
+            /* Keys pressed while the game is stopped are not applied later. */
+            inputs.clear();
+            autoShift.reset();
+            return;
+        }
+
+        if (autoPlayer != null) {
+            /* Every step places one tetromino, so the player keeps up with any gravity. */
+            inputs.clear();
+            session.spawnIfNeeded();
+            autoPlayer.move(session);
+        }
+        else {
+            /* Apply every key pressed since the last step, in the pressed order. */
+            inputs.drain(inputHandler);
+            autoShift.update(session, stepTime);
+        }
+
+        /* Lower the tetromino, or add a new one, every time the gravity delay passes; else only add a new one if there isn't an active one. */
+        gravityTime += STEP_NANOS;
+        long delayTime = softDrop ? fastGameTime : normalGameTime;
+        if (gravityTime >= delayTime) {
+            gravityTime = Math.min(gravityTime - delayTime, delayTime);
+            session.tick();
+        }
+        else {
+            session.spawnIfNeeded();
+        }
+    }
+
+    /* Publishes the state if it changed, and asks the renderer to repaint the changed rows. */
+    private void publish() {
+        if (!tetris.publishFrame(frames)) return;
+
+        tetris.takeDirtyRows(dirtyRows);
+        if (dirtyRows.cardinality() == rowNum) {
+            renderer.repaintAll();
+        }
+        else {
+            int row = dirtyRows.nextSetBit(0);
+            while (row >= 0) {
+                int end = dirtyRows.nextClearBit(row);
+                renderer.repaintRows(row, end);
+                row = dirtyRows.nextSetBit(end);
+            }
+        }
+        dirtyRows.clear();
+
+        if (gameOverPending) {
+            gameOverPending = false;
+            renderer.gameOver();
+        }
+    }
+
+    /* The recording is finished as soon as the game is over, and the renderer is told about it once. */
+    private class GameOverListener implements TetrisListener {
+
+        @Override
+        public void gameOver(AbstractTetris tetris) {
+            stopRecording();
+            gameOverPending = true;
+        }
+    }
+
+    private class InputHandler implements InputQueue.Handler {
+
+        @Override
+        public void onInput(InputType input, long time) {
+            /* A key pressed right after a tetromino is locked moves the next one. */
+            session.spawnIfNeeded();
+            if (input == InputType.Left || input == InputType.Right) autoShift.press(session, input, time);
+            else session.apply(input);
+
+            long latency = System.nanoTime() - time;
+            inputLatencySum += latency;
+            inputLatencyMax = Math.max(inputLatencyMax, latency);
+            ++inputNum;
+        }
+
+        @Override
+        public void onRelease(InputType input, long time) {
+            autoShift.release(input, time);
+        }
+    }
+
+    /**
+     * Queues a key press, only called by the input thread.
+     * @param InputType - input
+     */
+    public void press(InputType input) {
+        inputs.offer(input, System.nanoTime());
+    }
+
+    /**
+     * Queues a key release, only called by the input thread.
+     * @param InputType - input
+     */
+    public void release(InputType input) {
+        inputs.offerRelease(input, System.nanoTime());
+    }
+
+    /**
+     * 
+     * @param Boolean - softDrop, true while the tetromino should fall fast.
+     */
+    public void setSoftDrop(boolean softDrop) { this.softDrop = softDrop; }
+
+    /**
+     * 
+     * @param Boolean - paused, true to stop the game.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) wakeUp();
+    }
+
+    /**
+     * Starts a new game on the loop thread at its next step.
+     */
+    public void restart() {
+        restartRequested = true;
+        wakeUp();
+    }
+
+    /**
+     * Takes back the last locked tetromino on the loop thread at its next step, only in the practice mode.
+     */
+    public void rewind() {
+        if (!practice) return;
+        rewindRequested = true;
+        wakeUp();
+    }
+
+    /**
+     * 
+     * @return FrameBuffer - Frames of the game, only borrowed by the renderer.
+     */
+    public FrameBuffer getFrames() { return frames; }
+
+    /**
+     * 
+     * @return Long - Average time from a key press until it's applied to the game, in nanoseconds.
+     */
+    public long averageInputLatency() { return (inputNum == 0) ? 0 : inputLatencySum / inputNum; }
+
+    /**
+     * 
+     * @return Long - Longest time from a key press until it's applied to the game, in nanoseconds.
+     */
+    public long maxInputLatency() { return inputLatencyMax; }
+
+    /* Starts a new game on the engine, the engine is reused between the games. */
+    private void createSession() {
+        long seed = new SplittableRandom().nextLong();
+        session = new GameSession(tetris, new PieceQueue(new SevenBagPieceSource(seed), previewSize));
+        if (practice) {
+            if (history != null) history.detach();
+            history = new BoardHistory(session);
+        }
+        gravityTime = 0;
+        startRecording(seed);
+    }
+
+    /* Records the new game to a file named with its start time, if a replay directory is given. */
+    private void startRecording(long seed) {
+        if (replayDir == null) return;
+
+        Path path = Paths.get(replayDir, "tetris-" + System.currentTimeMillis() + ".replay");
+        try {
+            session.setRecorder(new ReplayRecorder(path, rowNum, colNum, seed));
+        }
+        catch (IOException e) {
+            System.err.println("Game can't be recorded to " + path + ": " + e.getMessage());
+        }
+    }
+
+    private void stopRecording() {
+        ReplayRecorder recorder = session.getRecorder();
+        if (recorder == null) return;
+
+        session.setRecorder(null);
+        try {
+            recorder.close();
+        }
+        catch (IOException e) {
+            System.err.println("Recording couldn't be saved: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,154 @@
+
+/**
+* <h1>GameSession Class</h1>
+* Drives a tetris game with the given inputs and tetromino source, without any timer or user interface. <br>
+* A session can be stepped as fast as wanted on any thread, but it should only be used by one thread at a time.
+*
+* @author Emre Oytun
+*/
+public class GameSession {
+
+    private final AbstractTetris tetris;
+    private final PieceSource source;
+
+    /* Tetromino reused for every spawn, the tetris only keeps the current one. */
+    private final Tetromino piece = new Tetromino();
+
+    /* Records the game when it's set. */
+    private ReplayRecorder recorder = null;
+
+    /**
+     * Constructs the session with the given parameters.
+     * @param AbstractTetris - tetris to be played.
+     * @param PieceSource - source of the added tetrominos.
+     */
+    public GameSession(AbstractTetris tetris, PieceSource source) {
+        this.tetris = tetris;
+        this.source = source;
+    }
+
+    /**
+     * Adds the next tetromino if there is no active one and the game continues.
+     * @return Boolean - True if a tetromino is added, false otherwise.
+     */
+    public boolean spawnIfNeeded() {
+        if (!tetris.gameStatus() || tetris.currentTetrominoStatus()) return false;
+
+        TetrominoType type = source.next();
+        if (recorder != null) recorder.recordPiece(type);
+
+        piece.changeType(type);
+        tetris.add(piece);
+        return true;
+    }
+
+    /**
+     * One gravity step: lowers the current tetromino, or adds the next one if there is no active tetromino.
+     */
+    public void tick() {
+        if (tetris.currentTetrominoStatus()) {
+            if (recorder != null) recorder.recordInput(InputType.Lower);
+            tetris.lowerTetromino();
+        }
+        else {
+            spawnIfNeeded();
+        }
+    }
+
+    /**
+     * Applies the given input to the game.
+     * @param InputType - input to be applied.
+     */
+    public void apply(InputType input) {
+        /* A gravity step is recorded by tick, as a lowering or as the added tetromino. */
+        if (recorder != null && input != InputType.Lower) recorder.recordInput(input);
+
+        switch (input) {
+            case Left: tetris.moveTetrominoLeft(); break;
+            case Right: tetris.moveTetrominoRight(); break;
+            case Rotate: tetris.rotateTetromino(); break;
+            case Lower: tick(); break;
+            case HardDrop: tetris.hardDrop(); break;
+        }
+    }
+
+    /**
+     * Applies the given inputs in order until they end or the game is over.
+     * @param InputType[] - inputs to be applied.
+     * @return Int - Number of applied inputs.
+     */
+    public int run(InputType[] inputs) {
+        int i = 0;
+        for (; i < inputs.length && tetris.gameStatus(); ++i) {
+            apply(inputs[i]);
+        }
+        return i;
+    }
+
+    /**
+     * Saves the state of the game and of the piece source to the given snapshot.
+     * @param GameSnapshot - destination with the sizes of the map.
+     */
+    public void snapshot(GameSnapshot destination) {
+        tetris.snapshot(destination);
+        source.saveState(destination.sourceState(source.stateSize()), 0);
+    }
+
+    /**
+     * Restores the state of the game and of the piece source from the given snapshot, the game continues with the same tetrominos.
+     * @param GameSnapshot - source with the sizes of the map, taken from a session with the same kind of piece source.
+     * @throws IllegalArgumentException - When the snapshot doesn't match the map or the piece source.
+     */
+    public void restore(GameSnapshot snapshot) throws IllegalArgumentException {
+        if (snapshot.sourceStateSize() != source.stateSize()) {
+            throw new IllegalArgumentException("Snapshot source state size: " + snapshot.sourceStateSize() + " doesn't match the source: " + source.stateSize() + ".");
+        }
+        tetris.restore(snapshot);
+        source.restoreState(snapshot.sourceState(), 0);
+    }
+
+    /**
+     * Sets the recorder of the game, every added tetromino and applied input after this call is recorded.
+     * @param ReplayRecorder - recorder, null stops the recording.
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * 
+     * @return ReplayRecorder - Recorder of the game, null if it's not recorded.
+     */
+    public ReplayRecorder getRecorder() { return recorder; }
+
+    /**
+     * 
+     * @return AbstractTetris - Tetris played by the session.
+     */
+    public AbstractTetris getTetris() { return tetris; }
+
+    /**
+     * 
+     * @return PieceSource - Source of the added tetrominos.
+     */
+    public PieceSource getSource() { return source; }
+
+    /**
+     * 
+     * @return Boolean - True if the game is over, false otherwise.
+     */
+    public boolean isOver() { return !tetris.gameStatus(); }
+
+    /**
+     * 
+     * @return Int - Number of tetrominos locked to the map till now.
+     */
+    public int piecesPlaced() { return tetris.numberOfLockedTetrominos(); }
+
+    /**
+     * 
+     * @return Int - Number of removed lines till now.
+     */
+    public int linesCleared() { return tetris.numberOfClearedLines(); }
+
+}
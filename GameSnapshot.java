@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+* <h1>GameSnapshot Class</h1>
+* Complete state of a game: the locked blocks, the current tetromino, the status, the counters and the state of the piece source. <br>
+* Blocks are packed with 3 bits per cell (0 is empty, type ordinal + 1 otherwise), 21 cells per long, so a 20x10 map takes 80 bytes.
+* A snapshot is reused by taking new snapshots into it; taking and restoring one don't create objects.
+* It can also be written to and read from a file.
+*
+* @author Emre Oytun
+*/
+public class GameSnapshot {
+
+    private static final int MAGIC = 0x54534E50;
+    private static final byte VERSION = 1;
+
+    private static final int CELL_BITS = 3;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+    private static final int CELLS_PER_LONG = Long.SIZE / CELL_BITS;
+
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    /* Limits of a loaded snapshot, so a corrupted file can't make it allocate too much. */
+    private static final int MAX_CELL_NUM = 1 << 24;
+    private static final int MAX_SOURCE_STATE_SIZE = 1 << 10;
+    private static final long MAX_FILE_BYTES = 64L << 20;
+
+    /* Block characters of the cell codes, and the cell codes of the block characters. */
+    private static final char[] SYMBOLS = new char[1 << CELL_BITS];
+    private static final byte[] CODES = new byte[128];
+    static {
+        SYMBOLS[0] = ' ';
+        for (TetrominoType type : TYPES) {
+            char symbol = TetrominoShape.of(type, 0).getSymbol();
+            SYMBOLS[type.ordinal() + 1] = symbol;
+            CODES[symbol] = (byte) (type.ordinal() + 1);
+        }
+    }
+
+    private final int rowNum;
+    private final int colNum;
+    private final long[] cells;
+
+    boolean status = true;
+    boolean isTetrominoActive = false;
+    TetrominoType type = null;
+    int rotation = 0;
+    int startX = 0;
+    int startY = 0;
+
+    int totalMoves = 0;
+    int totalLines = 0;
+    int totalLocked = 0;
+
+    private long[] sourceState = new long[0];
+    private int sourceStateSize = 0;
+
+    /**
+     * Constructs an empty snapshot for maps with the given sizes.
+     * @param rowNum
+     * @param colNum
+     */
+    public GameSnapshot(int rowNum, int colNum) {
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+        cells = new long[(rowNum * colNum + CELLS_PER_LONG - 1) / CELLS_PER_LONG];
+    }
+
+    /**
+     * 
+     * @return Int - Row number of the map.
+     */
+    public int getRowNum() { return rowNum; }
+
+    /**
+     * 
+     * @return Int - Column number of the map.
+     */
+    public int getColNum() { return colNum; }
+
+    /**
+     * 
+     * @return Int - Number of bytes the snapshot takes in a file.
+     */
+    public int byteSize() {
+        return 4 + 1 + 4 * 2 + 2 + 1 + 4 * 3 + 4 * 3 + Long.BYTES * cells.length + 4 + Long.BYTES * sourceStateSize;
+    }
+
+    /**
+     * Writes the snapshot to the given file.
+     * @param Path - path of the file, it's replaced if it exists.
+     * @throws IOException - When the file can't be written.
+     */
+    public void save(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(byteSize());
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(rowNum);
+        buffer.putInt(colNum);
+        buffer.put((byte) (status ? 1 : 0));
+        buffer.put((byte) (isTetrominoActive ? 1 : 0));
+        buffer.put((byte) (type == null ? -1 : type.ordinal()));
+        buffer.putInt(rotation);
+        buffer.putInt(startX);
+        buffer.putInt(startY);
+        buffer.putInt(totalMoves);
+        buffer.putInt(totalLines);
+        buffer.putInt(totalLocked);
+        for (long word : cells) buffer.putLong(word);
+        buffer.putInt(sourceStateSize);
+        for (int i = 0; i < sourceStateSize; ++i) buffer.putLong(sourceState[i]);
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by save().
+     * @param Path - path of the file.
+     * @return GameSnapshot - Read snapshot.
+     * @throws IOException - When the file can't be read or it isn't a snapshot.
+     */
+    public static GameSnapshot load(Path path) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_FILE_BYTES) throw new IOException("Snapshot: " + path + " is too large.");
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {}
+        }
+        buffer.flip();
+
+        try {
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+                throw new IOException("File: " + path + " is not a snapshot.");
+            }
+
+            /* The sizes are checked before anything is allocated from them. */
+            int rowNum = buffer.getInt();
+            int colNum = buffer.getInt();
+            if (rowNum <= 0 || colNum <= 0 || (long) rowNum * colNum > MAX_CELL_NUM) {
+                throw new IOException("Snapshot: " + path + " has invalid sizes: " + rowNum + "x" + colNum + ".");
+            }
+            long cellBytes = (long) Long.BYTES * ((rowNum * colNum + CELLS_PER_LONG - 1) / CELLS_PER_LONG);
+            if (buffer.remaining() < 3 + 4 * 6 + cellBytes + 4) {
+                throw new IOException("Snapshot: " + path + " is truncated.");
+            }
+
+            GameSnapshot snapshot = new GameSnapshot(rowNum, colNum);
+            snapshot.status = buffer.get() != 0;
+            snapshot.isTetrominoActive = buffer.get() != 0;
+            int typeIdx = buffer.get();
+            snapshot.type = (typeIdx < 0) ? null : TYPES[typeIdx];
+            snapshot.rotation = buffer.getInt();
+            snapshot.startX = buffer.getInt();
+            snapshot.startY = buffer.getInt();
+            snapshot.totalMoves = buffer.getInt();
+            snapshot.totalLines = buffer.getInt();
+            snapshot.totalLocked = buffer.getInt();
+            for (int i = 0; i < snapshot.cells.length; ++i) snapshot.cells[i] = buffer.getLong();
+
+            int stateSize = buffer.getInt();
+            if (stateSize < 0 || stateSize > MAX_SOURCE_STATE_SIZE || buffer.remaining() < (long) Long.BYTES * stateSize) {
+                throw new IOException("Snapshot: " + path + " has an invalid source state size: " + stateSize + ".");
+            }
+            long[] state = snapshot.sourceState(stateSize);
+            for (int i = 0; i < state.length && i < snapshot.sourceStateSize; ++i) state[i] = buffer.getLong();
+            return snapshot;
+        }
+        catch (java.nio.BufferUnderflowException | ArrayIndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Snapshot: " + path + " is truncated or corrupted.");
+        }
+    }
+
+    /**
+     * Packs the given line to the given row of the snapshot.
+     * @param Int - row
+     * @param Char[] - line, blocks of the row.
+     */
+    void packRow(int row, char[] line) {
+        int cellIdx = row * colNum;
+        int wordIdx = cellIdx / CELLS_PER_LONG;
+        int shift = (cellIdx % CELLS_PER_LONG) * CELL_BITS;
+
+        long word = cells[wordIdx] & ((1L << shift) - 1);
+        for (int j = 0; j < colNum; ++j) {
+            word |= (long) codeOf(line[j]) << shift;
+            shift += CELL_BITS;
+            if (shift == CELLS_PER_LONG * CELL_BITS) {
+                cells[wordIdx++] = word;
+                shift = 0;
+                word = 0;
+            }
+        }
+
+        /* Keep the cells of the next row which share the last word. */
+        if (shift != 0) cells[wordIdx] = word | (cells[wordIdx] & ~((1L << shift) - 1));
+    }
+
+    /**
+     * Packs an empty row, without looking at every cell.
+     * @param Int - row
+     */
+    void clearRow(int row) {
+        int cellIdx = row * colNum;
+        int remaining = colNum;
+        while (remaining > 0) {
+            int offset = cellIdx % CELLS_PER_LONG;
+            int n = Math.min(remaining, CELLS_PER_LONG - offset);
+            cells[cellIdx / CELLS_PER_LONG] &= ~(((1L << (n * CELL_BITS)) - 1) << (offset * CELL_BITS));
+            cellIdx += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * 
+     * @param Int - row
+     * @return Boolean - True if the given row has no blocks, false otherwise.
+     */
+    boolean isRowEmpty(int row) {
+        int cellIdx = row * colNum;
+        int remaining = colNum;
+        while (remaining > 0) {
+            int offset = cellIdx % CELLS_PER_LONG;
+            int n = Math.min(remaining, CELLS_PER_LONG - offset);
+            if ((cells[cellIdx / CELLS_PER_LONG] & (((1L << (n * CELL_BITS)) - 1) << (offset * CELL_BITS))) != 0) return false;
+            cellIdx += n;
+            remaining -= n;
+        }
+        return true;
+    }
+
+    /**
+     * Unpacks the given row of the snapshot to the given line.
+     * @param Int - row
+     * @param Char[] - line, blocks of the row are written to it.
+     * @return Int - Number of filled cells of the row.
+     */
+    int unpackRow(int row, char[] line) {
+        if (isRowEmpty(row)) {
+            Arrays.fill(line, 0, colNum, ' ');
+            return 0;
+        }
+
+        int cellIdx = row * colNum;
+        int wordIdx = cellIdx / CELLS_PER_LONG;
+        int shift = (cellIdx % CELLS_PER_LONG) * CELL_BITS;
+
+        int fill = 0;
+        long word = cells[wordIdx] >>> shift;
+        for (int j = 0; j < colNum; ++j) {
+            int code = (int) word & CELL_MASK;
+            line[j] = SYMBOLS[code];
+            if (code != 0) ++fill;
+
+            word >>>= CELL_BITS;
+            shift += CELL_BITS;
+            if (shift == CELLS_PER_LONG * CELL_BITS && j + 1 < colNum) {
+                word = cells[++wordIdx];
+                shift = 0;
+            }
+        }
+        return fill;
+    }
+
+    /* Returns the buffer of the source state with the given size, it grows only when it's too small. */
+    long[] sourceState(int size) {
+        if (sourceState.length < size) sourceState = new long[size];
+        sourceStateSize = size;
+        return sourceState;
+    }
+
+    long[] sourceState() { return sourceState; }
+
+    int sourceStateSize() { return sourceStateSize; }
+
+    private static int codeOf(char block) {
+        return (block < CODES.length) ? CODES[block] : 0;
+    }
+
+}
@@ -0,0 +1,24 @@
+
+/**
+* <h1>GameStrategy Interface</h1>
+* Decides the inputs of a game played without a user. <br>
+* A strategy instance is only used by one thread at a time, so it can keep its own buffers.
+*
+* @author Emre Oytun
+*/
+public interface GameStrategy {
+
+    /**
+     * Called before every game.
+     * @param Long - seed of the game, strategies with random choices should use it to be repeatable.
+     */
+    void newGame(long seed);
+
+    /**
+     * Applies the inputs of one step to the given session, the current tetromino is active when it's called.
+     * Gravity is applied by the caller after every step.
+     * @param GameSession - session to be played.
+     */
+    void move(GameSession session);
+
+}
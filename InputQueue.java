@@ -0,0 +1,150 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+* <h1>InputQueue Class</h1>
+* Bounded lock-free queue of timestamped key presses and releases for one producer thread and one consumer thread. <br>
+* Events are kept in preallocated arrays, so offering and draining them don't create objects; every offered input is kept in its order
+* until it's drained, unless the queue is full.
+*
+* @author Emre Oytun
+*/
+public class InputQueue {
+
+    /**
+     * Receives the drained inputs.
+     */
+    public interface Handler {
+        /**
+         * @param InputType - input
+         * @param Long - time of the input in System.nanoTime() units.
+         */
+        void onInput(InputType input, long time);
+
+        /**
+         * Called for the released keys of the inputs which are held, like the auto shifted moves.
+         * @param InputType - input whose key is released.
+         * @param Long - time of the release in System.nanoTime() units.
+         */
+        default void onRelease(InputType input, long time) {}
+    }
+
+    private static final InputType[] INPUTS = InputType.values();
+
+    /* Set in the code of a released input. */
+    private static final int RELEASE_FLAG = 0x40;
+
+    private final int mask;
+    private final byte[] inputs;
+    private final long[] times;
+
+    /* Index of the next event to be drained, written only by the consumer. */
+    private final AtomicLong head = new AtomicLong();
+
+    /* Index of the next event to be offered, written only by the producer. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /* Last seen value of the other side's index, so it's read again only when the queue looks full or empty. */
+    private long cachedHead = 0;
+    private long cachedTail = 0;
+
+    /**
+     * Constructs the queue with the given capacity.
+     * @param Int - capacity, it's rounded up to a power of two.
+     * @throws IllegalArgumentException - When the capacity is not positive.
+     */
+    public InputQueue(int capacity) throws IllegalArgumentException {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity: " + capacity + " is invalid for the queue.");
+        }
+
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+
+        mask = size - 1;
+        inputs = new byte[size];
+        times = new long[size];
+    }
+
+    /**
+     * Adds an input to the queue, only called by the producer thread.
+     * @param InputType - input
+     * @param Long - time of the input in System.nanoTime() units.
+     * @return Boolean - True if the input is added, false if the queue is full.
+     */
+    public boolean offer(InputType input, long time) {
+        return offer(input.ordinal(), time);
+    }
+
+    /**
+     * Adds the release of an input's key to the queue, only called by the producer thread.
+     * @param InputType - input whose key is released.
+     * @param Long - time of the release in System.nanoTime() units.
+     * @return Boolean - True if the release is added, false if the queue is full.
+     */
+    public boolean offerRelease(InputType input, long time) {
+        return offer(input.ordinal() | RELEASE_FLAG, time);
+    }
+
+    private boolean offer(int code, long time) {
+        long t = tail.get();
+        if (t - cachedHead > mask) {
+            cachedHead = head.get();
+            if (t - cachedHead > mask) return false;
+        }
+
+        int idx = (int) t & mask;
+        inputs[idx] = (byte) code;
+        times[idx] = time;
+
+        /* The event is written before the new tail is visible to the consumer. */
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Gives every queued input to the handler in order, only called by the consumer thread.
+     * @param Handler - handler of the inputs.
+     * @return Int - Number of drained inputs.
+     */
+    public int drain(Handler handler) {
+        long h = head.get();
+        if (h == cachedTail) {
+            cachedTail = tail.get();
+            if (h == cachedTail) return 0;
+        }
+
+        int drainedNum = 0;
+        for (; h != cachedTail; ++h) {
+            int idx = (int) h & mask;
+            int code = inputs[idx];
+            if ((code & RELEASE_FLAG) != 0) handler.onRelease(INPUTS[code & ~RELEASE_FLAG], times[idx]);
+            else handler.onInput(INPUTS[code], times[idx]);
+            ++drainedNum;
+
+            /* The slot can be reused by the producer after the head passes it. */
+            head.lazySet(h + 1);
+        }
+        return drainedNum;
+    }
+
+    /**
+     * Removes every queued input, only called by the consumer thread.
+     */
+    public void clear() {
+        cachedTail = tail.get();
+        head.lazySet(cachedTail);
+    }
+
+    /**
+     * 
+     * @return Boolean - True if there is no queued input, false otherwise.
+     */
+    public boolean isEmpty() { return head.get() == tail.get(); }
+
+    /**
+     * 
+     * @return Int - Maximum number of queued inputs.
+     */
+    public int capacity() { return mask + 1; }
+
+}
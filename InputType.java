@@ -0,0 +1,19 @@
+
+/**
+* <h1>InputType Enum</h1>
+* Inputs which can be given to a game session.
+*
+* @author Emre Oytun
+*/
+public enum InputType {
+    /* Moves the tetromino one column left. */
+    Left,
+    /* Moves the tetromino one column right. */
+    Right,
+    /* Rotates the tetromino right. */
+    Rotate,
+    /* One gravity step: lowers the tetromino, or adds the next one when there is no active tetromino. */
+    Lower,
+    /* Drops the tetromino to its landing row and locks it. */
+    HardDrop
+}
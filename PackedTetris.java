@@ -0,0 +1,286 @@
+
+/**
+* <h1>PackedTetris Class</h1>
+* PackedTetris implements the game tetris on a slot of a PackedBoardStore, so one engine object plays any number of stored games. <br>
+* The moves change the rows of the selected slot in place, with the same row mask operations as TetrisBitboard. Selecting another slot
+* writes the counters and the current tetromino back to the store and reads them for the new slot; the column tops, the features and the
+* hash are found again from its rows, in O(map). If a piece source is given, its state is kept with the games too, so a GameSession on the
+* engine and on the source plays any selected game. <br>
+* The store doesn't keep the types of the locked blocks, they are read back as blocks of the O tetromino. A slot should be selected by one
+* engine at a time; engines on different slots of the same store can play on different threads.
+*
+* @author Emre Oytun
+*/
+public class PackedTetris extends AbstractTetris {
+
+    /* Symbol of every locked block. */
+    private static final char BLOCK_SYMBOL = TetrominoShape.of(TetrominoType.O, 0).getSymbol();
+
+    private final PackedBoardStore store;
+    private final PieceSource source;
+    private final long fullRowMask;
+
+    /* Selected slot and its offset in the store. */
+    private int slot = -1;
+    private int offset = 0;
+
+    /* Buffers used while selecting a slot and while a snapshot is taken or restored. */
+    private final GameSnapshot state;
+    private final long[] sourceState;
+    private final char[] line;
+
+	/**
+     * Constructs the tetris on the first slot of the given store, without a piece source.
+     * @param PackedBoardStore - store
+     */
+    public PackedTetris(PackedBoardStore store) {
+        this(store, null);
+    }
+
+	/**
+     * Constructs the tetris on the first slot of the given store; the state of the given source is kept with every game.
+     * @param PackedBoardStore - store
+     * @param PieceSource - source, null if its state isn't kept.
+     * @throws IllegalArgumentException - When the state size of the source doesn't match the store.
+     */
+    public PackedTetris(PackedBoardStore store, PieceSource source) throws IllegalArgumentException {
+        super(store.getRowNum(), store.getColNum());
+
+        int stateSize = (source == null) ? 0 : source.stateSize();
+        if (stateSize != store.sourceStateSize()) {
+            throw new IllegalArgumentException("Source state size: " + stateSize + " doesn't match the store: " + store.sourceStateSize() + ".");
+        }
+
+        this.store = store;
+        this.source = source;
+        fullRowMask = (colNum == TetrisBitboard.MAX_COL_NUM) ? -1L : (1L << colNum) - 1;
+
+        state = new GameSnapshot(rowNum, colNum);
+        sourceState = new long[stateSize];
+        line = new char[colNum];
+
+        select(0);
+    }
+
+	/**
+	 * Saves the selected game to the store and continues the game of the given slot.
+	 * @param Int - slot
+	 * @throws IndexOutOfBoundsException - When the store doesn't have the slot.
+	 */
+	public void select(int slot) throws IndexOutOfBoundsException {
+		int newOffset = store.offsetOf(slot);
+		if (this.slot >= 0) {
+			store.saveState(offset, this);
+			if (source != null) {
+				source.saveState(sourceState, 0);
+				store.saveSource(offset, sourceState);
+			}
+		}
+
+		this.slot = slot;
+		offset = newOffset;
+		store.loadState(offset, state);
+		restoreState(state);
+		if (source != null) {
+			store.loadSource(offset, sourceState);
+			source.restoreState(sourceState, 0);
+		}
+	}
+
+	/**
+	 * Starts a new game in the selected slot; the piece source continues from the state of the given source, so a seeded source starts it.
+	 * @param PieceSource - start, source of the same class as the source of the engine.
+	 */
+	public void newGame(PieceSource start) {
+		reset();
+		if (source != null) {
+			start.saveState(sourceState, 0);
+			source.restoreState(sourceState, 0);
+		}
+	}
+
+	/**
+	 *
+	 * @return Int - Selected slot.
+	 */
+	public int selectedSlot() { return slot; }
+
+	/**
+	 *
+	 * @return PackedBoardStore - Store of the games.
+	 */
+	public PackedBoardStore getStore() { return store; }
+
+	/**
+	 * Prints the tetris to the terminal.
+	 */
+    @Override
+    protected void print() {
+        for (int i = 0; i < rowNum; ++i) {
+			long mask = store.row(offset, i);
+			for (int j = 0; j < colNum; ++j) {
+				System.out.print(((mask >>> j) & 1) != 0 ? BLOCK_SYMBOL : '*');
+			}
+			System.out.print("\n");
+		}
+    }
+
+	/**
+	 * Checks the lines to remove if there are full lines, and removes all of them in one pass.
+	 */
+	@Override
+	protected int checkLines(int[] removedRows) {
+		int writeIdx = rowNum - 1;
+		int removedNum = 0;
+		for (int readIdx = rowNum - 1; readIdx >= 0; --readIdx) {
+			long mask = store.row(offset, readIdx);
+			if (mask == fullRowMask) {
+				removedRows[removedNum++] = readIdx;
+			}
+			else {
+				if (writeIdx != readIdx) store.setRow(offset, writeIdx, mask);
+				--writeIdx;
+			}
+		}
+
+		for (int i = writeIdx; i >= 0; --i) {
+			store.setRow(offset, i, 0);
+		}
+
+		return writeIdx + 1;
+	}
+
+    @Override
+    protected void addTetromino(Tetromino t) {
+        hashTetromino(t);
+
+        for (int i = 0; i < t.getActiveRowNum(); ++i) {
+			int x = i + t.getStartX();
+			store.setRow(offset, x, store.row(offset, x) | ((long) t.getRowMask(i) << t.getStartY()));
+		}
+    }
+
+    @Override
+    protected void deleteTetromino(Tetromino t) {
+        hashTetromino(t);
+
+        for (int i = 0; i < t.getActiveRowNum(); ++i) {
+			int x = i + t.getStartX();
+			store.setRow(offset, x, store.row(offset, x) & ~((long) t.getRowMask(i) << t.getStartY()));
+		}
+    }
+
+    @Override
+    protected boolean fits(Tetromino t, int dx, int dy, int rotationDelta) {
+        int start_x = t.getStartX() + dx;
+		int start_y = t.getStartY() + dy;
+		TetrominoShape shape = t.getShape(rotationDelta);
+		int active_rowNum = shape.getActiveRowNum();
+
+		if (start_x < 0 || start_x + active_rowNum > rowNum || start_y < 0 || start_y + shape.getActiveColNum() > colNum) return false;
+
+		for (int i = 0; i < active_rowNum; ++i) {
+			if ((store.row(offset, start_x+i) & ((long) shape.getRowMask(i) << start_y)) != 0) return false;
+		}
+
+		return true;
+    }
+
+	@Override
+	protected boolean isFilled(int row, int col) {
+		return (store.row(offset, row) & (1L << col)) != 0;
+	}
+
+	@Override
+	protected boolean isRowFull(int row) {
+		return store.row(offset, row) == fullRowMask;
+	}
+
+	@Override
+	protected void copyOccupancy(long[] destination, int fromRow, int toRow) {
+		for (int i = fromRow; i < toRow; ++i) {
+			destination[i] = store.row(offset, i);
+		}
+	}
+
+	@Override
+	protected void copyColumnTops(int[] destination) {
+		for (int j = 0; j < colNum; ++j) {
+			destination[j] = rowNum;
+		}
+
+		/* Visit the rows from the top until the top of every column is found. */
+		long remaining = fullRowMask;
+		for (int i = 0; i < rowNum && remaining != 0; ++i) {
+			long found = store.row(offset, i) & remaining;
+			remaining &= ~found;
+			while (found != 0) {
+				destination[Long.numberOfTrailingZeros(found)] = i;
+				found &= found - 1;
+			}
+		}
+	}
+
+	@Override
+	protected void saveBoard(GameSnapshot destination) {
+		for (int i = 0; i < rowNum; ++i) {
+			long mask = store.row(offset, i);
+			if (mask == 0) {
+				destination.clearRow(i);
+			}
+			else {
+				fillLine(mask);
+				destination.packRow(i, line);
+			}
+		}
+	}
+
+	@Override
+	protected void loadBoard(GameSnapshot source) {
+		for (int i = 0; i < rowNum; ++i) {
+			long mask = 0;
+			if (source.unpackRow(i, line) != 0) {
+				for (int j = 0; j < colNum; ++j) {
+					if (line[j] != ' ') mask |= 1L << j;
+				}
+			}
+			store.setRow(offset, i, mask);
+		}
+	}
+
+	@Override
+	protected void loadRow(int row, char[] cells) {
+		long mask = 0;
+		if (cells != null) {
+			for (int j = 0; j < colNum; ++j) {
+				if (cells[j] != ' ') mask |= 1L << j;
+			}
+		}
+		store.setRow(offset, row, mask);
+	}
+
+	@Override
+	protected void clearBoard() {
+		for (int i = 0; i < rowNum; ++i) {
+			store.setRow(offset, i, 0);
+		}
+	}
+
+	@Override
+	protected void copyBoard(char[][] destination) {
+		for (int i = 0; i < rowNum; ++i) {
+			long mask = store.row(offset, i);
+			for (int j = 0; j < colNum; ++j) {
+				destination[i][j] = ((mask >>> j) & 1) != 0 ? BLOCK_SYMBOL : ' ';
+			}
+		}
+	}
+
+	/* Fills the line buffer with the blocks of the given row mask. */
+	private void fillLine(long mask) {
+		for (int j = 0; j < colNum; ++j) {
+			line[j] = ((mask >>> j) & 1) != 0 ? BLOCK_SYMBOL : ' ';
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+
+/**
+* <h1>PieceQueue Class</h1>
+* Keeps the next tetromino types of a source ready, so the coming tetrominos can be previewed before they are added. <br>
+* The preview is a fixed size ring, taking a type refills it from the source without creating objects.
+*
+* @author Emre Oytun
+*/
+public class PieceQueue implements PieceSource {
+
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+    private static final int TYPE_BITS = 4;
+    private static final int TYPES_PER_LONG = Long.SIZE / TYPE_BITS;
+
+    private final PieceSource source;
+
+    /* Preview types, the next one is at head. */
+    private final TetrominoType[] preview;
+    private int head = 0;
+
+    /**
+     * Constructs the queue with the given parameters.
+     * @param PieceSource - source of the types.
+     * @param Int - previewSize, number of types which can be previewed.
+     * @throws IllegalArgumentException - When the preview size is not positive.
+     */
+    public PieceQueue(PieceSource source, int previewSize) throws IllegalArgumentException {
+        if (previewSize <= 0) {
+            throw new IllegalArgumentException("Preview size: " + previewSize + " is invalid for the queue.");
+        }
+
+        this.source = source;
+        preview = new TetrominoType[previewSize];
+        for (int i = 0; i < previewSize; ++i) {
+            preview[i] = source.next();
+        }
+    }
+
+    @Override
+    public TetrominoType next() {
+        TetrominoType type = preview[head];
+        preview[head] = source.next();
+        head = (head + 1 == preview.length) ? 0 : head + 1;
+        return type;
+    }
+
+    /* Types of the preview, 16 types with 4 bits each per long, followed by the state of the source. */
+    @Override
+    public int stateSize() {
+        return previewLongs() + source.stateSize();
+    }
+
+    @Override
+    public void saveState(long[] destination, int offset) {
+        int longNum = previewLongs();
+        for (int i = 0; i < longNum; ++i) {
+            destination[offset + i] = 0;
+        }
+        for (int i = 0; i < preview.length; ++i) {
+            destination[offset + i / TYPES_PER_LONG] |= (long) peek(i).ordinal() << (i % TYPES_PER_LONG * TYPE_BITS);
+        }
+        source.saveState(destination, offset + longNum);
+    }
+
+    @Override
+    public void restoreState(long[] state, int offset) {
+        head = 0;
+        for (int i = 0; i < preview.length; ++i) {
+            preview[i] = TYPES[(int) (state[offset + i / TYPES_PER_LONG] >>> (i % TYPES_PER_LONG * TYPE_BITS)) & ((1 << TYPE_BITS) - 1)];
+        }
+        source.restoreState(state, offset + previewLongs());
+    }
+
+    private int previewLongs() {
+        return (preview.length + TYPES_PER_LONG - 1) / TYPES_PER_LONG;
+    }
+
+    /**
+     * 
+     * @param Int - Index of the previewed type, 0 is the type which is given by the next call of next().
+     * @return TetrominoType - Previewed type.
+     * @throws IndexOutOfBoundsException - When the index is not smaller than the preview size.
+     */
+    public TetrominoType peek(int idx) throws IndexOutOfBoundsException {
+        if (idx < 0 || idx >= preview.length) {
+            throw new IndexOutOfBoundsException("Index: " + idx + " is out of the preview size: " + preview.length + ".");
+        }
+        int i = head + idx;
+        return preview[(i >= preview.length) ? i - preview.length : i];
+    }
+
+    /**
+     * 
+     * @param Int - Index of the previewed type.
+     * @return TetrominoShape - Shared spawn shape of the previewed type.
+     */
+    public TetrominoShape peekShape(int idx) {
+        return TetrominoShape.of(peek(idx), 0);
+    }
+
+    /**
+     * 
+     * @return Int - Number of types which can be previewed.
+     */
+    public int previewSize() { return preview.length; }
+
+    /**
+     * 
+     * @return PieceSource - Source of the types.
+     */
+    public PieceSource getSource() { return source; }
+
+}
@@ -0,0 +1,36 @@
+
+/**
+* <h1>PieceSource Interface</h1>
+* Source of the tetromino types which are added to a game one after another.
+*
+* @author Emre Oytun
+*/
+public interface PieceSource {
+
+    /**
+     * 
+     * @return TetrominoType - Type of the next tetromino.
+     */
+    TetrominoType next();
+
+    /**
+     * 
+     * @return Int - Number of longs needed to save the state of the source, 0 if the source has no state which can be saved.
+     */
+    default int stateSize() { return 0; }
+
+    /**
+     * Saves the state of the source, so it can give the same types again after the state is restored.
+     * @param Long[] - destination with at least stateSize() longs after the offset.
+     * @param Int - offset
+     */
+    default void saveState(long[] destination, int offset) {}
+
+    /**
+     * Restores a state saved by saveState().
+     * @param Long[] - state
+     * @param Int - offset
+     */
+    default void restoreState(long[] state, int offset) {}
+
+}
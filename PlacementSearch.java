@@ -0,0 +1,274 @@
+
+/**
+* <h1>PlacementSearch Class</h1>
+* Finds every final resting placement of a tetromino which can be reached from its current position
+* with left, right, right rotation and lower moves. <br>
+* The search is a breadth first search over (rotation, row, column) states; collision checks are done against row bitmasks of the map
+* with the precomputed masks of the shapes, and rotations with the same shape are searched only once.
+* The state each state is reached from is kept, so the moves to a placement can be given back.
+* All buffers are allocated once, so a search doesn't create objects. Maps up to 64 columns are supported.
+*
+* @author Emre Oytun
+*/
+public class PlacementSearch {
+
+    private final int rowNum;
+    private final int colNum;
+
+    /* Row bitmasks of the searched map. */
+    private final long[] board;
+
+    /* Visited columns of every (rotation, row) pair. */
+    private final long[] visited;
+
+    /* States waiting to be visited, encoded as (rotation * rowNum + row) * colNum + col. */
+    private final int[] queue;
+
+    /* State which every visited state is reached from, -1 for the start. */
+    private final int[] parents;
+
+    /* Found placements, encoded like the states. */
+    private final int[] placements;
+    private int placementNum = 0;
+
+    private TetrominoType type = null;
+
+    /**
+     * Constructs the search for maps with the given sizes.
+     * @param rowNum
+     * @param colNum
+     * @throws IllegalArgumentException - When the column number doesn't fit into a row mask.
+     */
+    public PlacementSearch(int rowNum, int colNum) throws IllegalArgumentException {
+        if (rowNum <= 0 || colNum <= 0 || colNum > Long.SIZE) {
+            throw new IllegalArgumentException("Arguments row number: " + rowNum + " col number: " + colNum + " are invalid for the search.");
+        }
+
+        this.rowNum = rowNum;
+        this.colNum = colNum;
+
+        board = new long[rowNum];
+        visited = new long[TetrominoShape.ROTATION_NUM * rowNum];
+        queue = new int[TetrominoShape.ROTATION_NUM * rowNum * colNum];
+        placements = new int[queue.length];
+        parents = new int[queue.length];
+    }
+
+    /**
+     * Finds the placements of the given tetromino on the map of the given tetris.
+     * @param AbstractTetris - tetris whose map is searched.
+     * @param Tetromino - t to be placed, its position is the start of the search.
+     * @return Int - Number of found placements.
+     */
+    public int search(AbstractTetris tetris, Tetromino t) {
+        tetris.copyOccupancy(board, 0, rowNum);
+        return search(t.getType(), t.getRotation(), t.getStartX(), t.getStartY(), true);
+    }
+
+    /**
+     * Finds the placements of a tetromino on the given map.
+     * @param Long[] - rows, bitmasks of the map rows, bit j is set if column j is filled.
+     * @param TetrominoType - type of the tetromino.
+     * @param Int - rotation of the tetromino at the start.
+     * @param Int - startX of the tetromino at the start.
+     * @param Int - startY of the tetromino at the start.
+     * @return Int - Number of found placements.
+     */
+    public int search(long[] rows, TetrominoType type, int rotation, int startX, int startY) {
+        System.arraycopy(rows, 0, board, 0, rowNum);
+        return search(type, rotation, startX, startY, true);
+    }
+
+    /**
+     * Checks if the given tetromino can reach the given column in its own shape, moving only horizontally and rotating at its row.
+     * A tetromino which is blocked after a move may be rotated to fit at the new column, as the old horizontal check did.
+     * @param AbstractTetris - tetris whose map is searched.
+     * @param Tetromino - t to be moved.
+     * @param Int - newYPos to be reached.
+     * @return Boolean - True if the column can be reached, false otherwise.
+     */
+    public boolean canMoveHorizontally(AbstractTetris tetris, Tetromino t, int newYPos) {
+        int startX = t.getStartX();
+        if (newYPos < 0 || newYPos >= colNum || startX < 0 || startX >= rowNum) return false;
+
+        /* Only the rows the tetromino covers at its row are needed. */
+        tetris.copyOccupancy(board, startX, Math.min(rowNum, startX + TetrominoShape.CELL_NUM));
+        search(t.getType(), t.getRotation(), startX, t.getStartY(), false);
+
+        int rotation = canonicalRotation(t.getRotation());
+        return (visited[rotation * rowNum + startX] & (1L << newYPos)) != 0;
+    }
+
+    /**
+     *
+     * @return Int - Number of placements found by the last search.
+     */
+    public int placementCount() { return placementNum; }
+
+    /**
+     *
+     * @param Int - Index of the placement.
+     * @return Int - Rotation of the placement.
+     */
+    public int getRotation(int idx) { return placements[idx] / colNum / rowNum; }
+
+    /**
+     *
+     * @param Int - Index of the placement.
+     * @return Int - Start X position of the placement.
+     */
+    public int getStartX(int idx) { return placements[idx] / colNum % rowNum; }
+
+    /**
+     *
+     * @param Int - Index of the placement.
+     * @return Int - Start Y position of the placement.
+     */
+    public int getStartY(int idx) { return placements[idx] % colNum; }
+
+    /**
+     *
+     * @param Int - Index of the placement.
+     * @return TetrominoShape - Shape of the placement.
+     */
+    public TetrominoShape getShape(int idx) { return TetrominoShape.of(type, getRotation(idx)); }
+
+    /**
+     * Finds the moves which take the tetromino from the start of the last search to the given placement. <br>
+     * Only valid after a search of placements; the tetromino is locked there by one more lowering or a hard drop.
+     * @param Int - Index of the placement.
+     * @param InputType[] - destination of the moves, at least maxPathLength() long.
+     * @return Int - Number of the moves written to the destination.
+     */
+    public int path(int idx, InputType[] destination) {
+        int length = 0;
+        for (int state = placements[idx]; parents[state] >= 0; state = parents[state]) ++length;
+
+        int i = length;
+        for (int state = placements[idx]; parents[state] >= 0; state = parents[state]) {
+            destination[--i] = moveBetween(parents[state], state);
+        }
+        return length;
+    }
+
+    /**
+     *
+     * @return Int - Longest path which can be found by a search.
+     */
+    public int maxPathLength() { return queue.length; }
+
+    /**
+     * Moves the given tetromino to the given placement.
+     * @param Int - Index of the placement.
+     * @param Tetromino - t to be moved, it should have the searched type.
+     */
+    public void place(int idx, Tetromino t) {
+        t.setRotation(getRotation(idx));
+        t.setStartPosition(getStartX(idx), getStartY(idx));
+    }
+
+    private int search(TetrominoType type, int rotation, int startX, int startY, boolean lower) {
+        this.type = type;
+        placementNum = 0;
+
+        /* Without lowering only the start row can be visited. */
+        if (lower) {
+            for (int i = 0; i < visited.length; ++i) visited[i] = 0;
+        }
+        else if (startX >= 0 && startX < rowNum) {
+            for (int r = 0; r < TetrominoShape.ROTATION_NUM; ++r) visited[r * rowNum + startX] = 0;
+        }
+
+        int head = 0;
+        int tail = 0;
+
+        rotation = canonicalRotation(rotation);
+        if (!fits(rotation, startX, startY)) return 0;
+        visit(rotation, startX, startY);
+        queue[tail++] = encode(rotation, startX, startY);
+        parents[queue[0]] = -1;
+
+        while (head < tail) {
+            int state = queue[head++];
+            int r = state / colNum / rowNum;
+            int x = state / colNum % rowNum;
+            int y = state % colNum;
+
+            if (fits(r, x, y - 1)) tail = push(r, x, y - 1, state, tail);
+            else if (!lower) tail = visitRotations(r, x, y - 1, state, tail);
+
+            if (fits(r, x, y + 1)) tail = push(r, x, y + 1, state, tail);
+            else if (!lower) tail = visitRotations(r, x, y + 1, state, tail);
+
+            int rotated = canonicalRotation(r + 1);
+            if (fits(rotated, x, y)) tail = push(rotated, x, y, state, tail);
+
+            if (lower) {
+                if (fits(r, x + 1, y)) tail = push(r, x + 1, y, state, tail);
+                else {
+                    placements[placementNum++] = state;
+                }
+            }
+        }
+
+        return placementNum;
+    }
+
+    /* Like the old horizontal check, a tetromino which is blocked after a move may be rotated at the new column. */
+    private int visitRotations(int rotation, int x, int y, int parent, int tail) {
+        for (int k = 1; k < TetrominoShape.ROTATION_NUM; ++k) {
+            int rotated = canonicalRotation(rotation + k);
+            if (rotated != rotation && fits(rotated, x, y)) return push(rotated, x, y, parent, tail);
+        }
+        return tail;
+    }
+
+    /* Adds the state to the queue if it isn't visited yet, returns the new tail of the queue. */
+    private int push(int rotation, int x, int y, int parent, int tail) {
+        if (!visit(rotation, x, y)) return tail;
+
+        int state = encode(rotation, x, y);
+        parents[state] = parent;
+        queue[tail] = state;
+        return tail + 1;
+    }
+
+    /* The input which moves a tetromino from the parent state to the given state. */
+    private InputType moveBetween(int parent, int state) {
+        int dx = state / colNum % rowNum - parent / colNum % rowNum;
+        int dy = state % colNum - parent % colNum;
+        if (dx == 1) return InputType.Lower;
+        if (state / colNum / rowNum != parent / colNum / rowNum) return InputType.Rotate;
+        return (dy < 0) ? InputType.Left : InputType.Right;
+    }
+
+    /* The smallest rotation which has the same shape with the given one. */
+    private int canonicalRotation(int rotation) {
+        return TetrominoShape.of(type, rotation).getRotation();
+    }
+
+    private boolean fits(int rotation, int x, int y) {
+        TetrominoShape shape = TetrominoShape.of(type, rotation);
+        int active_rowNum = shape.getActiveRowNum();
+        if (x < 0 || x + active_rowNum > rowNum || y < 0 || y + shape.getActiveColNum() > colNum) return false;
+
+        for (int i = 0; i < active_rowNum; ++i) {
+            if ((board[x+i] & ((long) shape.getRowMask(i) << y)) != 0) return false;
+        }
+        return true;
+    }
+
+    /* Marks the state as visited, returns false if it was already visited. */
+    private boolean visit(int rotation, int x, int y) {
+        int idx = rotation * rowNum + x;
+        long bit = 1L << y;
+        if ((visited[idx] & bit) != 0) return false;
+        visited[idx] |= bit;
+        return true;
+    }
+
+    private int encode(int rotation, int x, int y) {
+        return (rotation * rowNum + x) * colNum + y;
+    }
+
+}
@@ -0,0 +1,24 @@
+
+/**
+* <h1>RandomStrategy Class</h1>
+* Plays a random movement input in every step, the baseline which other strategies are compared to.
+*
+* @author Emre Oytun
+*/
+public class RandomStrategy implements GameStrategy {
+
+    private static final InputType[] MOVES = { InputType.Left, InputType.Right, InputType.Rotate };
+
+    private final SplitMix64 randomGenerator = new SplitMix64(0);
+
+    @Override
+    public void newGame(long seed) {
+        randomGenerator.setState(seed);
+    }
+
+    @Override
+    public void move(GameSession session) {
+        session.apply(MOVES[randomGenerator.nextInt(MOVES.length)]);
+    }
+
+}
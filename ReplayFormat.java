@@ -0,0 +1,24 @@
+
+/**
+* <h1>ReplayFormat Class</h1>
+* Constants of the binary replay format shared by the recorder and the player. <br>
+* A replay starts with a header: the magic number (4 bytes), the format version (1 byte), the row and column numbers (varints)
+* and the seed of the piece source (8 bytes). <br>
+* Every event after it is one varint: (milliseconds since the previous event &lt;&lt; 4) | code.
+* Codes below PIECE_CODE are the ordinals of the applied inputs, PIECE_CODE + ordinal is an added tetromino of that type.
+*
+* @author Emre Oytun
+*/
+final class ReplayFormat {
+    public static final int MAGIC = 0x5452504C;
+    public static final byte VERSION = 1;
+
+    public static final int CODE_BITS = 4;
+    public static final int CODE_MASK = (1 << CODE_BITS) - 1;
+    public static final int PIECE_CODE = 8;
+
+    /* Longest varint of a long. */
+    public static final int MAX_VARINT_SIZE = 10;
+
+    private ReplayFormat() {}
+}
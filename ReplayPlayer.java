@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* <h1>ReplayPlayer Class</h1>
+* Plays a recorded replay back on a tetris as fast as possible. <br>
+* The recorded tetromino types are given to the session instead of a random source, so the game is repeated exactly
+* on any engine with the recorded sizes.
+*
+* @author Emre Oytun
+*/
+public class ReplayPlayer implements PieceSource, AutoCloseable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean endOfFile = false;
+
+    private final int rowNum;
+    private final int colNum;
+    private final long seed;
+
+    private static final InputType[] INPUTS = InputType.values();
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    /* Type of the tetromino which is being added by the played event. */
+    private TetrominoType pending = null;
+    private long time = 0;
+    private int eventNum = 0;
+
+    /**
+     * Opens the replay file and reads its header.
+     * @param Path - path of the replay file.
+     * @throws IOException - When the file can't be read or it isn't a replay.
+     */
+    public ReplayPlayer(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        buffer.flip();
+
+        try {
+            fill();
+            if (buffer.remaining() < 5 || buffer.getInt() != ReplayFormat.MAGIC) {
+                throw new IOException("File: " + path + " is not a replay.");
+            }
+            byte version = buffer.get();
+            if (version != ReplayFormat.VERSION) {
+                throw new IOException("Replay version: " + version + " is not supported.");
+            }
+
+            rowNum = (int) getVarint();
+            colNum = (int) getVarint();
+            fill();
+            if (buffer.remaining() < Long.BYTES) throw new IOException("Replay: " + path + " is truncated.");
+            seed = buffer.getLong();
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Plays the rest of the replay on the given tetris.
+     * @param AbstractTetris - tetris with the recorded sizes.
+     * @return GameSession - Session after the last event.
+     * @throws IOException - When the replay can't be read.
+     * @throws IllegalArgumentException - When the tetris doesn't have the recorded sizes.
+     */
+    public GameSession play(AbstractTetris tetris) throws IOException, IllegalArgumentException {
+        if (tetris.rowNum != rowNum || tetris.colNum != colNum) {
+            throw new IllegalArgumentException("Tetris sizes: " + tetris.rowNum + "x" + tetris.colNum + " don't match the replay: " + rowNum + "x" + colNum + ".");
+        }
+
+        GameSession session = new GameSession(tetris, this);
+        while (step(session)) {}
+        return session;
+    }
+
+    /**
+     * Plays the next event of the replay on the given session.
+     * @param GameSession - session whose source is this player.
+     * @return Boolean - True if an event is played, false if the replay ended.
+     * @throws IOException - When the replay can't be read or it has an unknown event.
+     */
+    public boolean step(GameSession session) throws IOException {
+        fill();
+        if (!buffer.hasRemaining()) return false;
+
+        long event = getVarint();
+        int code = (int) (event & ReplayFormat.CODE_MASK);
+        time += event >>> ReplayFormat.CODE_BITS;
+        ++eventNum;
+
+        if (code >= ReplayFormat.PIECE_CODE + TYPES.length || (code < ReplayFormat.PIECE_CODE && code >= INPUTS.length)) {
+            throw new IOException("Replay event: " + eventNum + " has an unknown code: " + code + ".");
+        }
+
+        if (code >= ReplayFormat.PIECE_CODE) {
+            pending = TYPES[code - ReplayFormat.PIECE_CODE];
+            session.spawnIfNeeded();
+            pending = null;
+        }
+        else {
+            session.apply(INPUTS[code]);
+        }
+        return true;
+    }
+
+    /**
+     * Gives the type of the recorded tetromino while its event is played.
+     * @throws IllegalStateException - When the session adds a tetromino which isn't recorded.
+     */
+    @Override
+    public TetrominoType next() throws IllegalStateException {
+        if (pending == null) {
+            throw new IllegalStateException("Replay doesn't have a tetromino at event: " + eventNum + ".");
+        }
+        return pending;
+    }
+
+    /**
+     * 
+     * @return Int - Row number of the recorded game.
+     */
+    public int getRowNum() { return rowNum; }
+
+    /**
+     * 
+     * @return Int - Column number of the recorded game.
+     */
+    public int getColNum() { return colNum; }
+
+    /**
+     * 
+     * @return Long - Seed of the piece source of the recorded game.
+     */
+    public long getSeed() { return seed; }
+
+    /**
+     * 
+     * @return Long - Time of the last played event in milliseconds since the recording started.
+     */
+    public long getTime() { return time; }
+
+    /**
+     * 
+     * @return Int - Number of played events.
+     */
+    public int eventCount() { return eventNum; }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /* Reads more of the file when there may not be a whole varint in the buffer. */
+    private void fill() throws IOException {
+        if (endOfFile || buffer.remaining() >= ReplayFormat.MAX_VARINT_SIZE) return;
+
+        buffer.compact();
+        while (buffer.hasRemaining() && !endOfFile) {
+            if (channel.read(buffer) < 0) endOfFile = true;
+        }
+        buffer.flip();
+    }
+
+    private long getVarint() throws IOException {
+        fill();
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            if (!buffer.hasRemaining()) throw new IOException("Replay is truncated at event: " + eventNum + ".");
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IOException("Replay has an invalid varint at event: " + eventNum + ".");
+    }
+
+}
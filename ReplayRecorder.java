@@ -0,0 +1,125 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+* <h1>ReplayRecorder Class</h1>
+* Records the added tetrominos and the applied inputs of a game session to a replay file. <br>
+* Events are encoded to a buffer and written to the file channel only when the buffer is full, so recording an event is a few byte writes.
+* A failed write doesn't stop the game: the recording stops and the error is thrown by close().
+*
+* @author Emre Oytun
+*/
+public class ReplayRecorder implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private final long startTime = System.nanoTime();
+    private long lastTime = 0;
+    private int eventNum = 0;
+
+    private IOException error = null;
+
+    /**
+     * Creates the replay file and writes its header.
+     * @param Path - path of the file, it's replaced if it exists.
+     * @param Int - rowNum of the recorded game.
+     * @param Int - colNum of the recorded game.
+     * @param Long - seed of the piece source of the recorded game.
+     * @throws IOException - When the file can't be created.
+     */
+    public ReplayRecorder(Path path, int rowNum, int colNum, long seed) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        buffer.putInt(ReplayFormat.MAGIC);
+        buffer.put(ReplayFormat.VERSION);
+        putVarint(rowNum);
+        putVarint(colNum);
+        buffer.putLong(seed);
+    }
+
+    /**
+     * Records an input applied to the game.
+     * @param InputType - input
+     */
+    public void recordInput(InputType input) {
+        record(input.ordinal());
+    }
+
+    /**
+     * Records a tetromino added to the game.
+     * @param TetrominoType - type of the added tetromino.
+     */
+    public void recordPiece(TetrominoType type) {
+        record(ReplayFormat.PIECE_CODE + type.ordinal());
+    }
+
+    /**
+     * 
+     * @return Int - Number of recorded events.
+     */
+    public int eventCount() { return eventNum; }
+
+    /**
+     * Writes the buffered events to the file.
+     * @throws IOException - When an event couldn't be written.
+     */
+    public void flush() throws IOException {
+        if (error == null) drain();
+        if (error != null) throw error;
+    }
+
+    /**
+     * Writes the buffered events and closes the file.
+     * @throws IOException - When an event couldn't be written or the file couldn't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    private void record(int code) {
+        if (error != null) return;
+
+        /* Times are kept in milliseconds since the recording started, only the difference to the previous event is written. */
+        long time = (System.nanoTime() - startTime) / 1_000_000;
+        long delta = time - lastTime;
+        lastTime = time;
+
+        if (buffer.remaining() < ReplayFormat.MAX_VARINT_SIZE) drain();
+        putVarint((delta << ReplayFormat.CODE_BITS) | code);
+        ++eventNum;
+    }
+
+    /* Writes the buffer to the channel, the first error stops the recording. */
+    private void drain() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+        catch (IOException e) {
+            error = e;
+        }
+        buffer.clear();
+    }
+
+    /* Unsigned LEB128: 7 bits per byte, the highest bit tells if more bytes follow. */
+    private void putVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+}
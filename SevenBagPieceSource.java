@@ -0,0 +1,83 @@
+import java.util.SplittableRandom;
+
+/**
+* <h1>SevenBagPieceSource Class</h1>
+* Gives the tetromino types in bags, every bag is a random permutation of all 7 types. <br>
+* So every type comes once in every 7 tetrominos, and there are at most 12 tetrominos between two of the same type.
+*
+* @author Emre Oytun
+*/
+public class SevenBagPieceSource implements PieceSource {
+
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    /* Bits of a type in the saved bag. */
+    private static final int TYPE_BITS = 3;
+
+    private final SplitMix64 randomGenerator;
+
+    /* Current bag, the types after bagIdx are not given yet. */
+    private final TetrominoType[] bag = TetrominoType.values();
+    private int bagIdx = bag.length;
+
+    /**
+     * Constructs the source with a random seed.
+     */
+    public SevenBagPieceSource() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs the source with the given seed, the same seed gives the same types.
+     * @param Long - seed
+     */
+    public SevenBagPieceSource(long seed) {
+        randomGenerator = new SplitMix64(seed);
+    }
+
+    @Override
+    public TetrominoType next() {
+        if (bagIdx == bag.length) {
+            shuffle();
+            bagIdx = 0;
+        }
+        return bag[bagIdx++];
+    }
+
+    @Override
+    public int stateSize() { return 2; }
+
+    /* The generator state, and the bag packed with 3 bits per type followed by the bag index. */
+    @Override
+    public void saveState(long[] destination, int offset) {
+        long packedBag = bagIdx;
+        for (int i = bag.length - 1; i >= 0; --i) {
+            packedBag = (packedBag << TYPE_BITS) | bag[i].ordinal();
+        }
+        destination[offset] = randomGenerator.getState();
+        destination[offset + 1] = packedBag;
+    }
+
+    @Override
+    public void restoreState(long[] state, int offset) {
+        randomGenerator.setState(state[offset]);
+
+        long packedBag = state[offset + 1];
+        for (int i = 0; i < bag.length; ++i) {
+            bag[i] = TYPES[(int) (packedBag & ((1 << TYPE_BITS) - 1))];
+            packedBag >>>= TYPE_BITS;
+        }
+        bagIdx = (int) packedBag;
+    }
+
+    /* Fisher-Yates shuffle of the bag in place. */
+    private void shuffle() {
+        for (int i = bag.length - 1; i > 0; --i) {
+            int j = randomGenerator.nextInt(i + 1);
+            TetrominoType temp = bag[i];
+            bag[i] = bag[j];
+            bag[j] = temp;
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+
+/**
+* <h1>SplitMix64 Class</h1>
+* The SplitMix64 generator, the same algorithm SplittableRandom uses, with a state which can be read and set. <br>
+* So the piece sources can save the point they reached in their sequence and continue from it later.
+*
+* @author Emre Oytun
+*/
+final class SplitMix64 {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    /**
+     * Constructs the generator with the given seed.
+     * @param Long - seed
+     */
+    SplitMix64(long seed) {
+        state = seed;
+    }
+
+    long nextLong() {
+        long z = (state += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 
+     * @param Int - bound, it should be positive.
+     * @return Int - Number in [0, bound), the high 32 bits are scaled to the bound.
+     */
+    int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    long getState() { return state; }
+
+    void setState(long state) { this.state = state; }
+}
@@ -0,0 +1,224 @@
+
+/**
+* <h1>TetrisBitboard Class</h1>
+* TetrisBitboard implements the game tetris keeping every row of the map as a bitmask.
+* Collision checks are done with one masked AND per tetromino row and full rows are found by comparing against the full row mask.
+* The block types are kept in a separate char map which is only touched when a tetromino is locked or lines are removed.
+*
+* @author Emre Oytun
+*/
+public class TetrisBitboard extends AbstractTetris {
+
+    /* Maximum column number that fits into a row mask. */
+    public static final int MAX_COL_NUM = Long.SIZE;
+
+    private long[] rows = null;
+    private char[][] map = null;
+    private final long fullRowMask;
+
+	/**
+     * Constructs the tetris with the given parameters.
+     * @param rowNum
+     * @param colNum
+     * @throws IllegalArgumentException - When the column number doesn't fit into a row mask.
+     */
+    public TetrisBitboard(int rowNum, int colNum) throws IllegalArgumentException {
+        super(rowNum, colNum);
+
+        if (colNum > MAX_COL_NUM) {
+            throw new IllegalArgumentException("Column number: " + colNum + " is greater than " + MAX_COL_NUM + ".");
+        }
+
+        fullRowMask = (colNum == MAX_COL_NUM) ? -1L : (1L << colNum) - 1;
+
+        /* Initialize the map. */
+        rows = new long[rowNum];
+        map = new char[rowNum][colNum];
+        for (int i = 0; i < rowNum; ++i) {
+            for (int j = 0; j < colNum; ++j) {
+                map[i][j] = ' ';
+            }
+        }
+    }
+
+	/**
+	 * Prints the tetris to the terminal.
+	 */
+    @Override
+    protected void print() {
+        for (int i = 0; i < rowNum; ++i) {
+			for (int j = 0; j < colNum; ++j) {
+				char ch = map[i][j];
+				if (ch == ' ') System.out.print("*");
+				else System.out.print(ch);
+			}
+			System.out.print("\n");
+		}
+    }
+
+	/**
+	 * Checks the lines to remove if there are full lines, and removes all of them in one pass.
+	 */
+	@Override
+	protected int checkLines(int[] removedRows) {
+		int writeIdx = rowNum - 1;
+		int removedNum = 0;
+		for (int readIdx = rowNum - 1; readIdx >= 0; --readIdx) {
+			if (rows[readIdx] == fullRowMask) {
+				removedRows[removedNum++] = readIdx;
+			}
+			else {
+				if (writeIdx != readIdx) {
+					rows[writeIdx] = rows[readIdx];
+
+					/* Swap the char lines so the removed line is reused as an empty one at the top. */
+					char[] temp = map[writeIdx];
+					map[writeIdx] = map[readIdx];
+					map[readIdx] = temp;
+				}
+				--writeIdx;
+			}
+		}
+
+		for (int i = writeIdx; i >= 0; --i) {
+			rows[i] = 0;
+			for (int j = 0; j < colNum; ++j) {
+				map[i][j] = ' ';
+			}
+		}
+
+		return writeIdx + 1;
+	}
+
+    @Override
+    protected void addTetromino(Tetromino t) {
+        hashTetromino(t);
+
+        for (int i = 0; i < t.getActiveRowNum(); ++i) {
+			int x = i + t.getStartX();
+			rows[x] |= (long) t.getRowMask(i) << t.getStartY();
+		}
+
+        TetrominoShape shape = t.getShape();
+        for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			map[shape.getCellRow(k)+t.getStartX()][shape.getCellCol(k)+t.getStartY()] = shape.getSymbol();
+		}
+    }
+
+    @Override
+    protected void deleteTetromino(Tetromino t) {
+        hashTetromino(t);
+
+        for (int i = 0; i < t.getActiveRowNum(); ++i) {
+			int x = i + t.getStartX();
+			rows[x] &= ~((long) t.getRowMask(i) << t.getStartY());
+		}
+
+        TetrominoShape shape = t.getShape();
+        for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			map[shape.getCellRow(k)+t.getStartX()][shape.getCellCol(k)+t.getStartY()] = ' ';
+		}
+    }
+
+    @Override
+    protected boolean fits(Tetromino t, int dx, int dy, int rotationDelta) {
+        int start_x = t.getStartX() + dx;
+		int start_y = t.getStartY() + dy;
+		TetrominoShape shape = t.getShape(rotationDelta);
+		int active_rowNum = shape.getActiveRowNum();
+
+		if (start_x < 0 || start_x + active_rowNum > rowNum || start_y < 0 || start_y + shape.getActiveColNum() > colNum) return false;
+
+		for (int i = 0; i < active_rowNum; ++i) {
+			if ((rows[start_x+i] & ((long) shape.getRowMask(i) << start_y)) != 0) return false;
+		}
+
+		return true;
+    }
+
+	@Override
+	protected boolean isFilled(int row, int col) {
+		return (rows[row] & (1L << col)) != 0;
+	}
+
+	@Override
+	protected boolean isRowFull(int row) {
+		return rows[row] == fullRowMask;
+	}
+
+	@Override
+	protected void copyOccupancy(long[] destination, int fromRow, int toRow) {
+		System.arraycopy(rows, fromRow, destination, fromRow, toRow - fromRow);
+	}
+
+	@Override
+	protected void copyColumnTops(int[] destination) {
+		for (int j = 0; j < colNum; ++j) {
+			destination[j] = rowNum;
+		}
+
+		/* Visit the rows from the top until the top of every column is found. */
+		long remaining = fullRowMask;
+		for (int i = 0; i < rowNum && remaining != 0; ++i) {
+			long found = rows[i] & remaining;
+			remaining &= ~found;
+			while (found != 0) {
+				destination[Long.numberOfTrailingZeros(found)] = i;
+				found &= found - 1;
+			}
+		}
+	}
+
+	@Override
+	protected void saveBoard(GameSnapshot destination) {
+		for (int i = 0; i < rowNum; ++i) {
+			if (rows[i] == 0) destination.clearRow(i);
+			else destination.packRow(i, map[i]);
+		}
+	}
+
+	@Override
+	protected void loadBoard(GameSnapshot source) {
+		for (int i = 0; i < rowNum; ++i) {
+			long mask = 0;
+			if (source.unpackRow(i, map[i]) == 0) {
+				rows[i] = mask;
+				continue;
+			}
+
+			for (int j = 0; j < colNum; ++j) {
+				if (map[i][j] != ' ') mask |= 1L << j;
+			}
+			rows[i] = mask;
+		}
+	}
+
+	@Override
+	protected void loadRow(int row, char[] cells) {
+		long mask = 0;
+		for (int j = 0; j < colNum; ++j) {
+			map[row][j] = (cells == null) ? ' ' : cells[j];
+			if (map[row][j] != ' ') mask |= 1L << j;
+		}
+		rows[row] = mask;
+	}
+
+	@Override
+	protected void clearBoard() {
+		for (int i = 0; i < rowNum; ++i) {
+			if (rows[i] == 0) continue;
+			rows[i] = 0;
+			for (int j = 0; j < colNum; ++j) {
+				map[i][j] = ' ';
+			}
+		}
+	}
+
+	@Override
+	protected void copyBoard(char[][] destination) {
+		for (int i = 0; i < rowNum; ++i) {
+			System.arraycopy(map[i], 0, destination[i], 0, colNum);
+		}
+	}
+
+}
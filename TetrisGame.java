@@ -1,3 +1,5 @@
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -36,6 +38,14 @@ public class TetrisGame {
         gameFrame.addKeyListener(gameArea);
         gameFrame.add(gameArea);
 
+        /* The game loop runs on a daemon thread, so it's stopped before the exit to save the recording. */
+        gameFrame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                gameArea.shutdown();
+            }
+        });
+
         /* sidePanel to add control buttons. */
         JPanel sidePanel = new JPanel();
         sidePanel.setBounds(GAMEAREA_WIDTH, 0, SIDEPANEL_WIDTH, GAMEAREA_HEIGHT);
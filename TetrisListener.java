@@ -0,0 +1,54 @@
+
+/**
+* <h1>TetrisListener Interface</h1>
+* Receives the events of a tetris game when they happen, so the game doesn't have to be polled. <br>
+* The events are called on the thread which changes the game and the arguments are plain values, so nothing is allocated for them.
+* Every method does nothing by default.
+*
+* @author Emre Oytun
+*/
+public interface TetrisListener {
+
+    /**
+     * A new tetromino is added to the top of the map.
+     * @param AbstractTetris - tetris
+     * @param TetrominoType - type of the tetromino.
+     * @param Int - startX
+     * @param Int - startY
+     */
+    default void tetrominoAdded(AbstractTetris tetris, TetrominoType type, int startX, int startY) {}
+
+    /**
+     * The current tetromino is moved or rotated.
+     * @param AbstractTetris - tetris
+     * @param Int - startX, new position.
+     * @param Int - startY, new position.
+     * @param Int - rotation, new rotation.
+     */
+    default void tetrominoMoved(AbstractTetris tetris, int startX, int startY, int rotation) {}
+
+    /**
+     * The current tetromino is locked to the map.
+     * @param AbstractTetris - tetris
+     * @param TetrominoType - type of the tetromino.
+     * @param Int - startX
+     * @param Int - startY
+     * @param Int - rotation
+     */
+    default void tetrominoLocked(AbstractTetris tetris, TetrominoType type, int startX, int startY, int rotation) {}
+
+    /**
+     * Full lines are removed after a tetromino is locked.
+     * @param AbstractTetris - tetris
+     * @param Int[] - rows, indexes of the removed rows before the removal from the bottom to the top. It's reused, so it's only valid during the call.
+     * @param Int - count, number of the removed rows.
+     */
+    default void linesCleared(AbstractTetris tetris, int[] rows, int count) {}
+
+    /**
+     * A new tetromino couldn't be added, the game is over.
+     * @param AbstractTetris - tetris
+     */
+    default void gameOver(AbstractTetris tetris) {}
+
+}
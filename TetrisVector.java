@@ -7,7 +7,21 @@
 */
 public class TetrisVector extends AbstractTetris {
 
-    private char[][] map = null;
+    /* 
+     * Lines of the map kept as a ring buffer, logical line i is stored at lines[(head + i) % rowNum].
+     * Removing lines only reorders line references and reuses the removed ones as empty lines at the top.
+     */
+    private char[][] lines = null;
+    private int head = 0;
+
+    /* Number of filled cells of every stored line and number of full lines. */
+    private int[] lineFill = null;
+    private int fullLineNum = 0;
+
+    /* Scratch buffers used while removing lines. */
+    private char[][] keptLines = null;
+    private int[] keptFill = null;
+    private char[][] removedLines = null;
 
 	/**
      * Constructs the tetris with the given parameters.
@@ -18,12 +32,17 @@ public class TetrisVector extends AbstractTetris {
         super(rowNum, colNum);
 
         /* Initialize the map. */
-        map = new char[rowNum][colNum];
+        lineFill = new int[rowNum];
+        lines = new char[rowNum][colNum];
         for (int i = 0; i < rowNum; ++i) {
             for (int j = 0; j < colNum; ++j) {
-                map[i][j] = ' ';
+                lines[i][j] = ' ';
             }
         }
+
+        keptLines = new char[rowNum][];
+        keptFill = new int[rowNum];
+        removedLines = new char[rowNum][];
     }
 
 	/**
@@ -32,8 +51,9 @@ public class TetrisVector extends AbstractTetris {
     @Override
     protected void print() {
         for (int i = 0; i < rowNum; ++i) {
+			char[] line = lines[lineIdx(i)];
 			for (int j = 0; j < colNum; ++j) {
-				char ch = map[i][j];
+				char ch = line[j];
 				if (ch == ' ') System.out.print("*");
 				else System.out.print(ch);
 			}
@@ -42,135 +62,198 @@ public class TetrisVector extends AbstractTetris {
     }
 
 	/**
-	 * Checks the lines to remove if there are full lines.
+	 * Checks the lines to remove if there are full lines, and removes all of them in one pass. <br>
+	 * Only the lines from the highest full line to the bottom are visited, the lines above it are moved down by changing the head of the ring.
 	 */
 	@Override
-	protected void checkLines() {
+	protected int checkLines(int[] removedRows) {
+		if (fullLineNum == 0) return 0;
 
-		for (int i = rowNum - 1; i >= 0; --i) {
-			boolean isFull = true;
-			for (int j = 0; j < colNum && isFull; ++j) {
-				if (map[i][j] == ' ') isFull = false;
+		/* Split the lines from the bottom to the highest full line into kept and removed ones. */
+		int keptNum = 0;
+		int removedNum = 0;
+		int row = rowNum - 1;
+		for (; removedNum < fullLineNum; --row) {
+			int idx = lineIdx(row);
+			if (lineFill[idx] == colNum) {
+				removedRows[removedNum] = row;
+				removedLines[removedNum++] = lines[idx];
 			}
-		
-			if (isFull) {
-				deleteLine(i);
-				++i;
+			else {
+				keptLines[keptNum] = lines[idx];
+				keptFill[keptNum] = lineFill[idx];
+				++keptNum;
 			}
 		}
 
-	}
+		/* Moving the head up shifts every line above the highest full line down by the number of removed lines. */
+		head = lineIdx(rowNum - removedNum);
 
-	/**
-	 * Removes the given line.
-	 * @param Int - lineIdx to be removed.
-	 */
-	private void deleteLine(int lineIdx) {
-		for (int i = lineIdx - 1; i >= 0; --i) {
+		/* Put the kept lines back to the bottom in their order. */
+		for (int i = 0; i < keptNum; ++i) {
+			int idx = lineIdx(rowNum - 1 - i);
+			lines[idx] = keptLines[i];
+			lineFill[idx] = keptFill[i];
+			keptLines[i] = null;
+		}
+
+		/* Reuse the removed lines as empty lines at the top. */
+		for (int i = 0; i < removedNum; ++i) {
+			int idx = lineIdx(i);
+			lines[idx] = removedLines[i];
+			lineFill[idx] = 0;
+			removedLines[i] = null;
 			for (int j = 0; j < colNum; ++j) {
-				map[i+1][j] = map[i][j];
+				lines[idx][j] = ' ';
 			}
 		}
+
+		fullLineNum = 0;
+		return removedNum;
 	}
 
     @Override
     protected void addTetromino(Tetromino t) {
-        for (int i = 0; i < t.getActiveRowNum(); ++i) {
-			for (int j = 0; j < t.getActiveColNum(); ++j) {
-				if (t.get(i)[j] != ' ') map[i+t.getStartX()][j+t.getStartY()] = t.get(i)[j];
-			}
+        hashTetromino(t);
+
+        TetrominoShape shape = t.getShape();
+        char symbol = shape.getSymbol();
+        for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			int idx = lineIdx(shape.getCellRow(k) + t.getStartX());
+			lines[idx][shape.getCellCol(k)+t.getStartY()] = symbol;
+			if (++lineFill[idx] == colNum) ++fullLineNum;
 		}
     }
 
     @Override
     protected void deleteTetromino(Tetromino t) {
-        for (int i = 0; i < t.getActiveRowNum(); ++i) {
-			for (int j = 0; j < t.getActiveColNum(); ++j) {
-				if (t.get(i)[j] != ' ') map[i+t.getStartX()][j+t.getStartY()] = ' ';
-			}
+        hashTetromino(t);
+
+        TetrominoShape shape = t.getShape();
+        for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			int idx = lineIdx(shape.getCellRow(k) + t.getStartX());
+			lines[idx][shape.getCellCol(k)+t.getStartY()] = ' ';
+			if (lineFill[idx]-- == colNum) --fullLineNum;
 		}
     }
 
     @Override
-    protected boolean canBeAdded(Tetromino t) {
-        int start_x = t.getStartX();
-		int start_y= t.getStartY();
-		
-		boolean canAdded = true;
-		for (int i = 0; i < t.getActiveRowNum() && canAdded; ++i) {
-			for (int j = 0; j < t.getActiveColNum() && canAdded; ++j) {
-				if (i+start_x<0 || i+start_x>=rowNum || j+start_y<0 || j+start_y>=colNum)	canAdded = false;
-				else if (map[i+start_x][j+start_y] != ' ' && t.get(i)[j] != ' ') canAdded = false; 		
-			}
+    protected boolean fits(Tetromino t, int dx, int dy, int rotationDelta) {
+        int start_x = t.getStartX() + dx;
+		int start_y = t.getStartY() + dy;
+		TetrominoShape shape = t.getShape(rotationDelta);
+
+		if (start_x < 0 || start_x + shape.getActiveRowNum() > rowNum || start_y < 0 || start_y + shape.getActiveColNum() > colNum) return false;
+
+		for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+			if (lines[lineIdx(shape.getCellRow(k)+start_x)][shape.getCellCol(k)+start_y] != ' ') return false;
 		}
 
-		return canAdded;
+		return true;
     }
 
-    @Override
-    protected boolean checkHorizantalMovement(Tetromino comingT, int newYPos) {
-        Tetromino newT = (Tetromino) comingT.clone();
-		int start_y = newT.getStartY();
-		
-		boolean isPlaced = false;
-		boolean isDone = false;
-		
-		while (!isPlaced && !isDone) {
-			if (!canBeAdded(newT)) isDone = true;
-			else {
-			
-				if (newT.getStartY() == newYPos) {
-					while (!newT.equals(comingT)) {
-						newT.rotate(DirectionType.Right);
-					}
-					if (canBeAdded(newT)) isPlaced = true; 		
-					else isDone = true;
-				}
-				
-				else {
-				
-					if (newYPos < start_y) newT.goLeft();
-					else newT.goRight();
-					
-					boolean canPlaced = false;
-						
-					if (canBeAdded(newT)) canPlaced = true;
-					else {
-						for (int i = 0; i < 3 && !canPlaced; ++i) {
-							newT.rotate(DirectionType.Right);
-							if (canBeAdded(newT)) canPlaced = true;
-						}		
-					}		
-				
-					if (!canPlaced) isDone = true;
-				}
+	@Override
+	protected boolean isFilled(int row, int col) {
+		return lines[lineIdx(row)][col] != ' ';
+	}
+
+	@Override
+	protected boolean isRowFull(int row) {
+		return lineFill[lineIdx(row)] == colNum;
+	}
+
+	/* Returns the index of the stored line which is at the given row of the map. */
+	private int lineIdx(int row) {
+		int idx = head + row;
+		return (idx >= rowNum) ? idx - rowNum : idx;
+	}
+
+	@Override
+	protected void copyOccupancy(long[] destination, int fromRow, int toRow) {
+		for (int i = fromRow; i < toRow; ++i) {
+			char[] line = lines[lineIdx(i)];
+			long mask = 0;
+			for (int j = 0; j < colNum; ++j) {
+				if (line[j] != ' ') mask |= 1L << j;
 			}
+			destination[i] = mask;
+		}
+	}
+
+	@Override
+	protected void copyColumnTops(int[] destination) {
+		int foundNum = 0;
+		for (int j = 0; j < colNum; ++j) {
+			destination[j] = rowNum;
 		}
-		
-		return isPlaced;
-    }
 
-	private void copyMap(char[][] source, char[][] destination) {
-		for (int i = 0; i < source.length; ++i) {
-			for (int j = 0; j < source[i].length; ++j) {
-				destination[i][j] = source[i][j];
+		/* Visit the rows from the top until the top of every column is found. */
+		for (int i = 0; i < rowNum && foundNum < colNum; ++i) {
+			int idx = lineIdx(i);
+			if (lineFill[idx] == 0) continue;
+
+			char[] line = lines[idx];
+			for (int j = 0; j < colNum; ++j) {
+				if (line[j] != ' ' && destination[j] == rowNum) {
+					destination[j] = i;
+					++foundNum;
+				}
 			}
 		}
 	}
 
 	@Override
-	public char[][] getMap() {
-		char[][] renderedMap = new char[rowNum][colNum];
-		
-		if (currentTetrominoStatus()) {
-			addTetromino(curTetromino);
-			copyMap(map, renderedMap);
-			deleteTetromino(curTetromino);
+	protected void saveBoard(GameSnapshot destination) {
+		for (int i = 0; i < rowNum; ++i) {
+			int idx = lineIdx(i);
+			if (lineFill[idx] == 0) destination.clearRow(i);
+			else destination.packRow(i, lines[idx]);
 		}
+	}
 
-		else copyMap(map, renderedMap);
-		
-		return renderedMap;
+	@Override
+	protected void loadBoard(GameSnapshot source) {
+		fullLineNum = 0;
+		for (int i = 0; i < rowNum; ++i) {
+			int idx = lineIdx(i);
+			lineFill[idx] = source.unpackRow(i, lines[idx]);
+			if (lineFill[idx] == colNum) ++fullLineNum;
+		}
+	}
+
+	@Override
+	protected void loadRow(int row, char[] cells) {
+		int idx = lineIdx(row);
+		char[] line = lines[idx];
+		if (lineFill[idx] == colNum) --fullLineNum;
+
+		int fill = 0;
+		for (int j = 0; j < colNum; ++j) {
+			line[j] = (cells == null) ? ' ' : cells[j];
+			if (line[j] != ' ') ++fill;
+		}
+		lineFill[idx] = fill;
+		if (fill == colNum) ++fullLineNum;
+	}
+
+	@Override
+	protected void clearBoard() {
+		for (int i = 0; i < rowNum; ++i) {
+			if (lineFill[i] == 0) continue;
+			lineFill[i] = 0;
+			for (int j = 0; j < colNum; ++j) {
+				lines[i][j] = ' ';
+			}
+		}
+		head = 0;
+		fullLineNum = 0;
+	}
+
+	@Override
+	protected void copyBoard(char[][] destination) {
+		for (int i = 0; i < rowNum; ++i) {
+			System.arraycopy(lines[lineIdx(i)], 0, destination[i], 0, colNum);
+		}
 	}
     
 }
@@ -9,23 +9,18 @@ public class Tetromino implements Cloneable {
     private static final int ROWSIZE = 4;
     private static final int COLSIZE = 4;
 
-    private int active_rowNum;
-    private int active_colNum;
+    private TetrominoType type;
+    private int rotation;
+    private TetrominoShape shape;
 
     private int startX;
     private int startY;
 
-    private char[][] blocks = null;
-
     /**
      * Constructs the tetromino with default type O.
      */
     public Tetromino() {
-        active_rowNum = 0;
-        active_colNum = 0;
-
-        initMemory();
-        init(TetrominoType.O);
+        this(TetrominoType.O);
     }
 
     /**
@@ -33,14 +28,10 @@ public class Tetromino implements Cloneable {
      * @param TetrominoType
      */
     public Tetromino(TetrominoType tetrominoType) {
-        active_rowNum = 0;
-        active_colNum = 0;
-
         startX = 0;
         startY = 0;
 
-        initMemory();
-        init(tetrominoType);
+        changeType(tetrominoType);
     }
 
     /**
@@ -56,23 +47,13 @@ public class Tetromino implements Cloneable {
     }
 
     /**
-     * Deep clones the tetromino instance
+     * Clones the tetromino instance, shapes are immutable so they are shared.
      * @return Cloned tetromino
      */
     @Override
     public Object clone() {
         try {
-            Tetromino copy = (Tetromino) super.clone();
-            
-            copy.initMemory();
-            /* Deep copy the blocks array. */
-            for (int i = 0; i < ROWSIZE; ++i) {
-                for (int j = 0; j < COLSIZE; ++j) {
-                    copy.blocks[i][j] = blocks[i][j];
-                }
-            }
-
-            return copy;
+            return super.clone();
         } catch (CloneNotSupportedException e) {
             e.getStackTrace();
         }
@@ -83,7 +64,7 @@ public class Tetromino implements Cloneable {
     /**
      * Checks if the given Object is equal to the tetromino
      * @param Object - If it's not in type of Tetromino, then it's not equal
-     * @return Boolean - True if it's equal, false otherwise
+     * @return Boolean - True if it has the same shape at the same position, false otherwise
      */
     @Override
     public boolean equals(Object obj) {
@@ -92,30 +73,21 @@ public class Tetromino implements Cloneable {
         if (obj.getClass() != this.getClass()) return false;
 
         Tetromino oth = (Tetromino) obj;
-        if (!(active_rowNum == oth.active_rowNum && active_colNum == oth.active_colNum)) return false;
-
-        boolean blocksEqual = true;
-        for (int i = 0; i < active_rowNum && blocksEqual; ++i) {
-            for (int j = 0; j < active_colNum && blocksEqual; ++j) {
-                if (blocks[i][j] != oth.blocks[i][j]) blocksEqual = false;
-            }
-        }
-        
-        return blocksEqual;
+        return shape == oth.shape && startX == oth.startX && startY == oth.startY;
     }
 
     @Override
     public int hashCode() {
-        return active_rowNum*active_colNum + startX*startY;
+        return (shape.getId() * 31 + startX) * 31 + startY;
     }
 
     /**
      * Prints the tetromino to the terminal
      */
     public void print() {
-		for (int i = 0; i < active_rowNum; ++i) {
-			for (int j = 0; j < active_colNum; ++j) {
-				System.out.print(blocks[i][j]);
+		for (int i = 0; i < shape.getActiveRowNum(); ++i) {
+			for (int j = 0; j < shape.getActiveColNum(); ++j) {
+				System.out.print(shape.isBlock(i, j) ? shape.getSymbol() : ' ');
 			}
 			System.out.println();
 		}
@@ -126,32 +98,8 @@ public class Tetromino implements Cloneable {
      * @param DirectionType - Rotation direction
      */
     public void rotate(DirectionType direction) {
-        char[][] rotatedBlocks = new char[ROWSIZE][COLSIZE];
-        
-        if (direction == DirectionType.Right) {
-            for (int i = 0; i < ROWSIZE; ++i) {
-                for (int j = 0; j <  COLSIZE; ++j) {
-                    rotatedBlocks[j][COLSIZE-1-i] = blocks[i][j];
-                }
-            }
-        }
-
-        else {
-            for (int i = 0; i < ROWSIZE; ++i) {
-                for (int j = 0; j < COLSIZE; ++j) {
-                    rotatedBlocks[ROWSIZE-1-j][i] = blocks[i][j];
-                }
-            }
-        }
-
-        blocks = rotatedBlocks;
-        setActualBlocks();
-        
-        /* Swap active row and col numbers. */
-        int temp = active_rowNum;
-        active_rowNum = active_colNum;
-        active_colNum = temp;
-
+        if (direction == DirectionType.Right) setRotation(rotation + 1);
+        else setRotation(rotation - 1);
     } 
 
     /**
@@ -159,17 +107,52 @@ public class Tetromino implements Cloneable {
      * @param TetrominoType - Type that tetromino will be changed into.
      */
     public void changeType(TetrominoType tetrominoType) {
-		/* Empty the data. */
-		for (int i = 0; i < ROWSIZE; ++i) {
-			for (int j = 0; j < COLSIZE; ++j) {
-				blocks[i][j] = ' ';
-			}
-		}
-		
-		/* Initialize the new type. */
-		init(tetrominoType);
+		type = tetrominoType;
+		setRotation(0);
 	}
 
+    /**
+     * 
+     * @return TetrominoType - Type of the tetromino.
+     */
+    public TetrominoType getType() { return type; }
+
+    /**
+     * 
+     * @return Int - Rotation index of the tetromino, between 0 and 3.
+     */
+    public int getRotation() { return rotation; }
+
+    /**
+     * Changes the orientation of the tetromino, any value is taken modulo 4.
+     * @param Int - rotation
+     */
+    public void setRotation(int rotation_) {
+        rotation = rotation_ & (TetrominoShape.ROTATION_NUM - 1);
+        shape = TetrominoShape.of(type, rotation);
+    }
+
+    /**
+     * 
+     * @return TetrominoShape - Shared immutable shape of the tetromino in its current orientation.
+     */
+    public TetrominoShape getShape() { return shape; }
+
+    /**
+     * 
+     * @param Int - rotationDelta, number of right rotations.
+     * @return TetrominoShape - Shape the tetromino would have after the given rotations, the tetromino isn't changed.
+     */
+    public TetrominoShape getShape(int rotationDelta) {
+        return (rotationDelta == 0) ? shape : TetrominoShape.of(type, rotation + rotationDelta);
+    }
+
+    /**
+     * 
+     * @return Char - Block character of the tetromino.
+     */
+    public char getSymbol() { return shape.getSymbol(); }
+
     /**
      * @return Int - Start X position
      */
@@ -212,13 +195,13 @@ public class Tetromino implements Cloneable {
      * 
      * @return Int - Active column number of tetromino block.
      */
-	public int getActiveColNum()  { return active_colNum; }
+	public int getActiveColNum()  { return shape.getActiveColNum(); }
 
     /**
      * 
      * @return Int - Active row number of tetromino block.
      */
-	public int getActiveRowNum()  { return active_rowNum; }
+	public int getActiveRowNum()  { return shape.getActiveRowNum(); }
 
     /**
      * @return Char[][] - Copy of tetromino block.
@@ -227,10 +210,10 @@ public class Tetromino implements Cloneable {
         char[][] copyBlocks = new char[ROWSIZE][COLSIZE];
         for (int i = 0; i < ROWSIZE; ++i) {
             for (int j = 0; j < COLSIZE; ++j) {
-                copyBlocks[i][j] = blocks[i][j];
+                copyBlocks[i][j] = shape.isBlock(i, j) ? shape.getSymbol() : ' ';
             }
         }
-        return blocks;
+        return copyBlocks;
     }
 
     /**
@@ -257,14 +240,28 @@ public class Tetromino implements Cloneable {
     /**
      * 
      * @param Int - Index to get the line.
-     * @return Char[] - Line according to the given index.
+     * @return Char[] - Copy of the line according to the given index.
      * @throws IllegalArgumentException - When the given index is out of boundaries.
      */
     public char[] get(int idx) throws IllegalArgumentException {
-        if (idx < 0 || idx >= active_rowNum) {
-			new IllegalArgumentException("Index is out of boundaries for tetromino.");
+        if (idx < 0 || idx >= shape.getActiveRowNum()) {
+			throw new IllegalArgumentException("Index is out of boundaries for tetromino.");
 		}
-		return blocks[idx];
+
+        char[] line = new char[COLSIZE];
+        for (int j = 0; j < COLSIZE; ++j) {
+            line[j] = shape.isBlock(idx, j) ? shape.getSymbol() : ' ';
+        }
+		return line;
+    }
+
+    /**
+     * 
+     * @param Int - Index to get the line mask.
+     * @return Int - Bitmask of the line according to the given index, bit j is set if column j has a block.
+     */
+    public int getRowMask(int idx) {
+        return shape.getRowMask(idx);
     }
 
     /**
@@ -272,141 +269,8 @@ public class Tetromino implements Cloneable {
      * @return Int[] - Left most bottom indexes, [0] -> x, [1] -> y.
      */
     public int[] getLeftMostBottomIndexes() {
-        boolean isFound = false;
-        int lastRowIndex = active_rowNum - 1;
-        int i;
-        for (i = 0; i < blocks[lastRowIndex].length && !isFound;) {
-            if (blocks[lastRowIndex][i] != ' ') isFound = true;
-            else ++i;
-        }	
-        
-        return new int[] {lastRowIndex, i};
-    }
-
-    private void initMemory() {
-        blocks = new char[ROWSIZE][COLSIZE];
-        for (int i = 0; i < ROWSIZE; ++i) {
-            for (int j = 0; j < COLSIZE; ++j) {
-                blocks[i][j] = ' ';
-            }
-        }
-    }
-
-    private void init(TetrominoType tetrominoType) {
-        if (tetrominoType == TetrominoType.I) {
-            blocks[0][0] = blocks[0][1] = blocks[0][2] = blocks[0][3] = 'I';
-            setActualBlocks();
-            
-            active_rowNum = 1;
-            active_colNum = 4;        
-        }
-
-        else if (tetrominoType == TetrominoType.O) {
-            blocks[0][0] = blocks[0][1] = blocks[1][0] = blocks[1][1] = 'O';
-            setActualBlocks();
-
-            active_rowNum = 2;
-            active_colNum = 2;        
-        }
-
-        else if (tetrominoType == TetrominoType.T) {
-            blocks[1][0] = blocks[1][1] = blocks[1][2] = blocks[0][1] = 'T';
-            setActualBlocks();
-            
-            active_rowNum = 2;
-            active_colNum = 3;
-            
-        }
-
-        else if (tetrominoType == TetrominoType.J) {
-            blocks[0][0] = blocks[1][0] = blocks[1][1] = blocks[1][2] = 'J';
-            setActualBlocks();
-            
-            active_rowNum = 2;
-            active_colNum = 3;
-            
-        }
-
-        else if (tetrominoType == TetrominoType.L) {
-            blocks[0][2] = blocks[1][0] = blocks[1][1] = blocks[1][2] = 'L';
-            setActualBlocks();
-           
-            active_colNum = 3;
-            active_rowNum = 2;
-            
-        }
-
-        else if (tetrominoType == TetrominoType.S) {
-            blocks[0][1] = blocks[0][2] = blocks[1][0] = blocks[1][1] = 'S';
-            setActualBlocks();
-            
-            active_rowNum = 2;
-            active_colNum = 3;
-            
-        }
-
-        else if (tetrominoType == TetrominoType.Z) {
-            blocks[0][0] = blocks[0][1] = blocks[1][1] = blocks[1][2] = 'Z';
-            setActualBlocks();
-            
-            active_rowNum = 2;
-            active_colNum = 3;
-            
-        }
-        
+        int lastRowIndex = shape.getActiveRowNum() - 1;
+        return new int[] {lastRowIndex, Integer.numberOfTrailingZeros(shape.getRowMask(lastRowIndex))};
     }
-
-    /* Checks if the left col of the blocks array is empty or not. */
-	private boolean isLeftColEmpty() {
-		boolean isEmpty = true;
-		for (int i = 0; i < ROWSIZE; ++i) {
-			if (blocks[i][0] != ' ') isEmpty = false;
-		}		
-		return isEmpty;
-	}
-
-	/* Checks if the top row of the blocks array is empty or not. */
-	private boolean isTopRowEmpty() {
-		boolean isEmpty = true;
-		for (int j = 0; j < COLSIZE; ++j) {
-			if (blocks[0][j] != ' ') isEmpty = false;
-		}
-		return isEmpty;
-	}
-
-	/* Shifts the blocks matrix 1 col toward left  */
-	private void shiftActualBlocksToLeft() {
-		for (int i = 0; i < ROWSIZE; ++i) {
-			for (int j = 1; j < COLSIZE; ++j) {
-				blocks[i][j-1] = blocks[i][j];
-				blocks[i][j] = ' ';
-			}
-		}
-	}
-
-	/* Shifts the blocks matrix 1 column upward. */
-	private void shiftActualBlocksToUp() {
-		for (int i = 0; i < COLSIZE; ++i) {
-			for (int j = 1; j < ROWSIZE; ++j) {
-				blocks[j-1][i] = blocks[j][i];
-				blocks[j][i] = ' ';
-			}
-		}
-	}
-
-	/* Sets the blocks array using the rotateMatrix so that blocks array has the actual blocks in the top mostleft part. */
-	private void setActualBlocks() {
-		while (isTopRowEmpty()) shiftActualBlocksToUp();
-		while (isLeftColEmpty()) shiftActualBlocksToLeft();
-	}
-    
     
 }
-
-enum TetrominoType {
-    I, O, T, J, L, S, Z
-}
-
-enum DirectionType {
-    Left, Right
-}
@@ -0,0 +1,251 @@
+
+/**
+* <h1>TetrominoShape Class</h1>
+* Immutable shape of a tetromino type in one of its 4 orientations. <br>
+* All shapes are precomputed once into a shared table, so rotating a tetromino is only an index change.
+* Orientations which look the same (like the rotations of O) share the same instance.
+*
+* @author Emre Oytun
+*/
+final class TetrominoShape {
+    public static final int ROTATION_NUM = 4;
+    public static final int CELL_NUM = 4;
+
+    private static final int ROWSIZE = 4;
+    private static final int COLSIZE = 4;
+
+    private static int shapeNum = 0;
+    private static final TetrominoShape[][] TABLE = buildTable();
+
+    private final TetrominoType type;
+    private final int rotation;
+    private final int id;
+    private final char symbol;
+
+    private final int active_rowNum;
+    private final int active_colNum;
+
+    /* Mask of every active row, bit j is set if column j has a block. */
+    private final int[] rowMasks = new int[ROWSIZE];
+
+    /* Row and column offsets of the blocks from the top left corner. */
+    private final int[] cellRows = new int[CELL_NUM];
+    private final int[] cellCols = new int[CELL_NUM];
+
+    /* Row offsets of the highest and the lowest block of every column. */
+    private final int[] columnTops = new int[COLSIZE];
+    private final int[] columnBottoms = new int[COLSIZE];
+
+    private TetrominoShape(TetrominoType type, int rotation, char[][] blocks) {
+        this.type = type;
+        this.rotation = rotation;
+        this.id = shapeNum++;
+        this.symbol = type.name().charAt(0);
+
+        int rowNum = 0;
+        int colNum = 0;
+        int cellIdx = 0;
+        for (int i = 0; i < ROWSIZE; ++i) {
+            for (int j = 0; j < COLSIZE; ++j) {
+                if (blocks[i][j] != ' ') {
+                    rowMasks[i] |= 1 << j;
+                    cellRows[cellIdx] = i;
+                    cellCols[cellIdx] = j;
+                    ++cellIdx;
+
+                    rowNum = Math.max(rowNum, i + 1);
+                    colNum = Math.max(colNum, j + 1);
+                }
+            }
+        }
+
+        this.active_rowNum = rowNum;
+        this.active_colNum = colNum;
+
+        for (int k = CELL_NUM - 1; k >= 0; --k) {
+            columnTops[cellCols[k]] = cellRows[k];
+        }
+        for (int k = 0; k < CELL_NUM; ++k) {
+            columnBottoms[cellCols[k]] = cellRows[k];
+        }
+    }
+
+    /**
+     * Returns the shared shape of the given type in the given orientation.
+     * @param TetrominoType
+     * @param Int - rotation index, any value is taken modulo 4.
+     * @return TetrominoShape
+     */
+    public static TetrominoShape of(TetrominoType type, int rotation) {
+        return TABLE[type.ordinal()][rotation & (ROTATION_NUM - 1)];
+    }
+
+    /**
+     *
+     * @return Int - Number of distinct shapes in the table.
+     */
+    public static int shapeCount() { return shapeNum; }
+
+    /**
+     *
+     * @return TetrominoType - Type of the shape.
+     */
+    public TetrominoType getType() { return type; }
+
+    /**
+     *
+     * @return Int - Smallest rotation index which has this shape.
+     */
+    public int getRotation() { return rotation; }
+
+    /**
+     *
+     * @return Int - Unique id of the shape, equal looking orientations have the same id.
+     */
+    public int getId() { return id; }
+
+    /**
+     *
+     * @return Char - Block character of the shape.
+     */
+    public char getSymbol() { return symbol; }
+
+    /**
+     *
+     * @return Int - Active row number of the shape.
+     */
+    public int getActiveRowNum() { return active_rowNum; }
+
+    /**
+     *
+     * @return Int - Active column number of the shape.
+     */
+    public int getActiveColNum() { return active_colNum; }
+
+    /**
+     *
+     * @param Int - Index of the row.
+     * @return Int - Bitmask of the row, bit j is set if column j has a block.
+     */
+    public int getRowMask(int idx) { return rowMasks[idx]; }
+
+    /**
+     *
+     * @param Int - Index of the block.
+     * @return Int - Row offset of the block.
+     */
+    public int getCellRow(int idx) { return cellRows[idx]; }
+
+    /**
+     *
+     * @param Int - Index of the block.
+     * @return Int - Column offset of the block.
+     */
+    public int getCellCol(int idx) { return cellCols[idx]; }
+
+    /**
+     *
+     * @param Int - Index of the active column.
+     * @return Int - Row offset of the highest block of the column.
+     */
+    public int getColumnTop(int col) { return columnTops[col]; }
+
+    /**
+     *
+     * @param Int - Index of the active column.
+     * @return Int - Row offset of the lowest block of the column.
+     */
+    public int getColumnBottom(int col) { return columnBottoms[col]; }
+
+    /**
+     *
+     * @param Int - Row index.
+     * @param Int - Column index.
+     * @return Boolean - True if there is a block at the given position, false otherwise.
+     */
+    public boolean isBlock(int row, int col) {
+        return row >= 0 && row < ROWSIZE && col >= 0 && col < COLSIZE && (rowMasks[row] & (1 << col)) != 0;
+    }
+
+    /* Builds the shapes of all types, each orientation is the previous one rotated right. */
+    private static TetrominoShape[][] buildTable() {
+        TetrominoType[] types = TetrominoType.values();
+        TetrominoShape[][] table = new TetrominoShape[types.length][ROTATION_NUM];
+
+        for (TetrominoType type : types) {
+            char[][] blocks = initialBlocks(type);
+            for (int r = 0; r < ROTATION_NUM; ++r) {
+                TetrominoShape shape = null;
+                for (int k = 0; k < r && shape == null; ++k) {
+                    if (table[type.ordinal()][k].hasSameBlocks(blocks)) shape = table[type.ordinal()][k];
+                }
+                table[type.ordinal()][r] = (shape != null) ? shape : new TetrominoShape(type, r, blocks);
+                blocks = rotateRight(blocks);
+            }
+        }
+
+        return table;
+    }
+
+    private boolean hasSameBlocks(char[][] blocks) {
+        for (int i = 0; i < ROWSIZE; ++i) {
+            for (int j = 0; j < COLSIZE; ++j) {
+                if ((blocks[i][j] != ' ') != isBlock(i, j)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static char[][] initialBlocks(TetrominoType type) {
+        char[][] blocks = new char[ROWSIZE][COLSIZE];
+        for (int i = 0; i < ROWSIZE; ++i) {
+            for (int j = 0; j < COLSIZE; ++j) {
+                blocks[i][j] = ' ';
+            }
+        }
+
+        char ch = type.name().charAt(0);
+        if (type == TetrominoType.I) blocks[0][0] = blocks[0][1] = blocks[0][2] = blocks[0][3] = ch;
+        else if (type == TetrominoType.O) blocks[0][0] = blocks[0][1] = blocks[1][0] = blocks[1][1] = ch;
+        else if (type == TetrominoType.T) blocks[1][0] = blocks[1][1] = blocks[1][2] = blocks[0][1] = ch;
+        else if (type == TetrominoType.J) blocks[0][0] = blocks[1][0] = blocks[1][1] = blocks[1][2] = ch;
+        else if (type == TetrominoType.L) blocks[0][2] = blocks[1][0] = blocks[1][1] = blocks[1][2] = ch;
+        else if (type == TetrominoType.S) blocks[0][1] = blocks[0][2] = blocks[1][0] = blocks[1][1] = ch;
+        else if (type == TetrominoType.Z) blocks[0][0] = blocks[0][1] = blocks[1][1] = blocks[1][2] = ch;
+
+        return blocks;
+    }
+
+    /* Rotates the blocks right and moves the actual blocks to the top left part. */
+    private static char[][] rotateRight(char[][] blocks) {
+        char[][] rotatedBlocks = new char[ROWSIZE][COLSIZE];
+        for (int i = 0; i < ROWSIZE; ++i) {
+            for (int j = 0; j < COLSIZE; ++j) {
+                rotatedBlocks[j][COLSIZE-1-i] = blocks[i][j];
+            }
+        }
+
+        int topRow = ROWSIZE;
+        int leftCol = COLSIZE;
+        for (int i = 0; i < ROWSIZE; ++i) {
+            for (int j = 0; j < COLSIZE; ++j) {
+                if (rotatedBlocks[i][j] != ' ') {
+                    topRow = Math.min(topRow, i);
+                    leftCol = Math.min(leftCol, j);
+                }
+            }
+        }
+
+        char[][] shiftedBlocks = new char[ROWSIZE][COLSIZE];
+        for (int i = 0; i < ROWSIZE; ++i) {
+            for (int j = 0; j < COLSIZE; ++j) {
+                int x = i + topRow;
+                int y = j + leftCol;
+                shiftedBlocks[i][j] = (x < ROWSIZE && y < COLSIZE) ? rotatedBlocks[x][y] : ' ';
+            }
+        }
+
+        return shiftedBlocks;
+    }
+
+}
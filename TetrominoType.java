@@ -0,0 +1,3 @@
+enum TetrominoType {
+    I, O, T, J, L, S, Z
+}
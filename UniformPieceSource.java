@@ -0,0 +1,48 @@
+import java.util.SplittableRandom;
+
+/**
+* <h1>UniformPieceSource Class</h1>
+* Gives every tetromino type with the same probability, independently of the previous types.
+*
+* @author Emre Oytun
+*/
+public class UniformPieceSource implements PieceSource {
+
+    private static final TetrominoType[] TYPES = TetrominoType.values();
+
+    private final SplitMix64 randomGenerator;
+
+    /**
+     * Constructs the source with a random seed.
+     */
+    public UniformPieceSource() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs the source with the given seed, the same seed gives the same types.
+     * @param Long - seed
+     */
+    public UniformPieceSource(long seed) {
+        randomGenerator = new SplitMix64(seed);
+    }
+
+    @Override
+    public TetrominoType next() {
+        return TYPES[randomGenerator.nextInt(TYPES.length)];
+    }
+
+    @Override
+    public int stateSize() { return 1; }
+
+    @Override
+    public void saveState(long[] destination, int offset) {
+        destination[offset] = randomGenerator.getState();
+    }
+
+    @Override
+    public void restoreState(long[] state, int offset) {
+        randomGenerator.setState(state[offset]);
+    }
+
+}
@@ -0,0 +1,92 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+* <h1>Zobrist Class</h1>
+* Zobrist hashing of the blocks of a map: every cell has a random 64 bit key and the hash of a map is the XOR of the keys of its
+* filled cells. <br>
+* Adding or removing a block changes the hash by XOR'ing one key, so the hash can be kept up to date with a few operations per move.
+* The keys only depend on the sizes of the map, so the maps of any two engines or searches with the same sizes have the same hashes,
+* and they share one table of keys for every size.
+*
+* @author Emre Oytun
+*/
+final class Zobrist {
+    private static final long SEED = 0x5a0b6157L;
+
+    /* Tables of the sizes used so far, the key of a size is (rowNum << 32) | colNum. */
+    private static final ConcurrentHashMap<Long, Zobrist> tables = new ConcurrentHashMap<>();
+
+    private final int colNum;
+
+    /* Key of the cell at (row, col) is at row * colNum + col. */
+    private final long[] keys;
+
+    /**
+     * Finds the keys of a map with the given sizes, they are created the first time the sizes are used.
+     * @param Int - rowNum
+     * @param Int - colNum
+     * @return Zobrist - Keys shared by every map with the given sizes.
+     */
+    static Zobrist of(int rowNum, int colNum) {
+        return tables.computeIfAbsent(((long) rowNum << 32) | colNum, size -> new Zobrist(rowNum, colNum));
+    }
+
+    private Zobrist(int rowNum, int colNum) {
+        this.colNum = colNum;
+
+        keys = new long[rowNum * colNum];
+        SplitMix64 randomGenerator = new SplitMix64(SEED);
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = randomGenerator.nextLong();
+        }
+    }
+
+    long key(int row, int col) { return keys[row * colNum + col]; }
+
+    /**
+     *
+     * @param Int - row
+     * @param Long - mask of the row, bit j is set if column j is filled.
+     * @return Long - Hash of the filled cells of the row.
+     */
+    long rowHash(int row, long mask) {
+        long hash = 0;
+        int base = row * colNum;
+        while (mask != 0) {
+            hash ^= keys[base + Long.numberOfTrailingZeros(mask)];
+            mask &= mask - 1;
+        }
+        return hash;
+    }
+
+    /**
+     *
+     * @param Long[] - rows, bitmasks of the map rows.
+     * @param Int - fromRow
+     * @param Int - toRow, the row after the last hashed row.
+     * @return Long - Hash of the filled cells of the given rows.
+     */
+    long hash(long[] rows, int fromRow, int toRow) {
+        long hash = 0;
+        for (int i = fromRow; i < toRow; ++i) {
+            if (rows[i] != 0) hash ^= rowHash(i, rows[i]);
+        }
+        return hash;
+    }
+
+    /**
+     *
+     * @param TetrominoShape - shape
+     * @param Int - startX of the shape.
+     * @param Int - startY of the shape.
+     * @return Long - Hash of the blocks of the shape at the given position.
+     */
+    long shapeHash(TetrominoShape shape, int startX, int startY) {
+        long hash = 0;
+        for (int k = 0; k < TetrominoShape.CELL_NUM; ++k) {
+            hash ^= key(startX + shape.getCellRow(k), startY + shape.getCellCol(k));
+        }
+        return hash;
+    }
+
+}